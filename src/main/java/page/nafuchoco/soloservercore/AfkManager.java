@@ -0,0 +1,222 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import page.nafuchoco.soloservercore.database.PluginSettingsManager;
+import page.nafuchoco.soloservercore.event.player.PlayerAfkStateChangeEvent;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ログイン処理が完了したプレイヤーのAFK状態と、ワールドごとのプレイヤー数を管理します。
+ * <p>
+ * AFKでないプレイヤーは <code>afkTimeThreshold</code> 後に確認されるよう {@link TimerWheel} に登録され、
+ * {@link #tick()} は期限を迎えたプレイヤーのみを確認します。
+ * 確認時に移動していた場合は最後の移動から再計算した時間後に登録し直すため、移動時にホイールを操作する必要はありません。
+ * AFK状態からの復帰は {@link #playerMoved(Player)} で即座に反映されます。
+ * 状態が変化した場合は {@link PlayerAfkStateChangeEvent} が呼び出されます。
+ * すべてのメソッドはメインスレッドから呼び出す必要があります。
+ *
+ * @since v5.2
+ */
+public class AfkManager {
+    private final PlayerActivityTracker activityTracker;
+    private final PluginSettingsManager settingsManager;
+
+    private final TimerWheel<UUID> wheel;
+
+    private final Set<UUID> afkPlayers;
+    // player -> world the player is counted in
+    private final Map<UUID, UUID> playerWorlds;
+    private final Map<UUID, WorldCounts> worldCounts;
+
+    public AfkManager(PlayerActivityTracker activityTracker, PluginSettingsManager settingsManager) {
+        this.activityTracker = activityTracker;
+        this.settingsManager = settingsManager;
+        wheel = new TimerWheel<>(this::check);
+        afkPlayers = new HashSet<>();
+        playerWorlds = new HashMap<>();
+        worldCounts = new HashMap<>();
+    }
+
+    /**
+     * プレイヤーがAFK状態であるかを返します。
+     *
+     * @param uuid プレイヤーのUUID
+     * @return AFK状態である場合 true
+     */
+    public boolean isAfk(@NotNull UUID uuid) {
+        return afkPlayers.contains(uuid);
+    }
+
+    /**
+     * プレイヤーがAFKの管理対象であるかを返します。
+     *
+     * @param uuid プレイヤーのUUID
+     * @return ログイン処理が完了しオンラインである場合 true
+     */
+    public boolean isCounted(@NotNull UUID uuid) {
+        return playerWorlds.containsKey(uuid);
+    }
+
+    /**
+     * ワールドにいる管理対象のプレイヤー数を返します。
+     *
+     * @param world ワールド
+     * @return プレイヤー数
+     */
+    public int getPlayerCount(@NotNull World world) {
+        val counts = worldCounts.get(world.getUID());
+        return counts != null ? counts.players : 0;
+    }
+
+    /**
+     * ワールドにいるAFK状態のプレイヤー数を返します。
+     *
+     * @param world ワールド
+     * @return AFK状態のプレイヤー数
+     */
+    public int getAfkCount(@NotNull World world) {
+        val counts = worldCounts.get(world.getUID());
+        return counts != null ? counts.afk : 0;
+    }
+
+    /**
+     * ワールドにいるAFK状態でないプレイヤー数を返します。
+     *
+     * @param world ワールド
+     * @return AFK状態でないプレイヤー数
+     */
+    public int getActiveCount(@NotNull World world) {
+        val counts = worldCounts.get(world.getUID());
+        return counts != null ? counts.players - counts.afk : 0;
+    }
+
+    /**
+     * プレイヤーの管理を開始します。{@link PlayerActivityTracker#playerJoined(Player)} の後に呼び出してください。
+     *
+     * @param player ログイン処理が完了したプレイヤー
+     */
+    public void playerJoined(@NotNull Player player) {
+        val world = player.getWorld().getUID();
+        playerWorlds.put(player.getUniqueId(), world);
+        getCounts(world).players++;
+        wheel.schedule(player.getUniqueId(), getThreshold());
+    }
+
+    /**
+     * プレイヤーの管理を終了します。
+     *
+     * @param player ログアウトするプレイヤー
+     */
+    public void playerQuit(@NotNull Player player) {
+        val uuid = player.getUniqueId();
+        wheel.cancel(uuid);
+        val world = playerWorlds.remove(uuid);
+        if (world == null)
+            return;
+        val counts = getCounts(world);
+        counts.players--;
+        if (afkPlayers.remove(uuid))
+            counts.afk--;
+    }
+
+    /**
+     * プレイヤーが別のワールドに移動したことを反映します。
+     *
+     * @param player ワールドを移動したプレイヤー
+     */
+    public void playerChangedWorld(@NotNull Player player) {
+        val uuid = player.getUniqueId();
+        if (!playerWorlds.containsKey(uuid))
+            return;
+        val before = playerWorlds.put(uuid, player.getWorld().getUID());
+        val afk = afkPlayers.contains(uuid);
+        val beforeCounts = getCounts(before);
+        beforeCounts.players--;
+        val afterCounts = getCounts(player.getWorld().getUID());
+        afterCounts.players++;
+        if (afk) {
+            beforeCounts.afk--;
+            afterCounts.afk++;
+        }
+    }
+
+    /**
+     * プレイヤーが移動したことを反映します。AFK状態であった場合は復帰させます。
+     *
+     * @param player 移動したプレイヤー
+     */
+    public void playerMoved(@NotNull Player player) {
+        val uuid = player.getUniqueId();
+        if (!afkPlayers.remove(uuid))
+            return;
+        val world = playerWorlds.get(uuid);
+        if (world != null)
+            getCounts(world).afk--;
+        wheel.schedule(uuid, getThreshold());
+        callEvent(uuid, false);
+    }
+
+    /**
+     * タイマーホイールを1秒進め、期限を迎えたプレイヤーを確認します。20tickごとに呼び出してください。
+     */
+    public void tick() {
+        wheel.tick();
+    }
+
+    private void check(UUID player) {
+        val idleTime = activityTracker.getIdleTime(player, TimeUnit.SECONDS);
+        if (idleTime < 0)
+            return;
+        val threshold = getThreshold();
+        if (idleTime >= threshold) {
+            afkPlayers.add(player);
+            val world = playerWorlds.get(player);
+            if (world != null)
+                getCounts(world).afk++;
+            callEvent(player, true);
+        } else {
+            wheel.schedule(player, threshold - idleTime);
+        }
+    }
+
+    private long getThreshold() {
+        return TimeUnit.MINUTES.toSeconds(settingsManager.getAfkTimeThreshold());
+    }
+
+    private WorldCounts getCounts(UUID world) {
+        return worldCounts.computeIfAbsent(world, key -> new WorldCounts());
+    }
+
+    private void callEvent(UUID uuid, boolean afk) {
+        val sscPlayer = SoloServerApi.getInstance().getSSCPlayer(uuid);
+        if (sscPlayer != null)
+            Bukkit.getPluginManager().callEvent(new PlayerAfkStateChangeEvent(sscPlayer, afk));
+    }
+
+    private static class WorldCounts {
+        private int players;
+        private int afk;
+    }
+}
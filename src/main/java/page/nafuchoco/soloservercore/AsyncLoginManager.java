@@ -19,51 +19,106 @@ package page.nafuchoco.soloservercore;
 import lombok.val;
 import org.bukkit.entity.Player;
 import page.nafuchoco.soloservercore.data.InGameSSCPlayer;
+import page.nafuchoco.soloservercore.data.PlayersTeam;
+import page.nafuchoco.soloservercore.data.TeamMessage;
 
 import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
+/**
+ * Prepares everything a joining player needs off the main thread.
+ * The player data is loaded (or registered on the first login), then the joined team and its new messages are prefetched,
+ * so that the main thread only has to apply the {@link LoginResult}.
+ */
 public class AsyncLoginManager {
+    private static final int NEW_MESSAGES_LIMIT = 5;
 
+    /**
+     * Starts the login process. Must be called from the main thread.
+     *
+     * @param player Player who is logging in
+     * @return Future completed with the result of the login process
+     */
     public static CompletableFuture<LoginResult> login(Player player) {
-        return CompletableFuture.supplyAsync(() -> {
-            LoginResult result;
-            if (SoloServerCore.getInstance().getPlayersTable().getPlayerData(player.getUniqueId()) == null) {
-                val location = AsyncSafeLocationUtil.generateNewRandomLocation();
+        // Player#getLastPlayed is read here because it must be read before the player joins.
+        val lastPlayed = player.getLastPlayed();
+        return CompletableFuture.supplyAsync(() -> loadPlayer(player))
+                .thenApply(result -> prefetchTeam(result, lastPlayed));
+    }
+
+    private static LoginResult loadPlayer(Player player) {
+        val offlineSSCPlayer = SoloServerApi.getInstance().getOfflineSSCPlayer(player.getUniqueId());
+        if (offlineSSCPlayer != null)
+            return new LoginResult(ResultStatus.JOINED, "", new InGameSSCPlayer(offlineSSCPlayer, player, false), null, List.of(), 0);
 
-                if (location != null) {
-                    val sscPlayer = new InGameSSCPlayer(player.getUniqueId(),
-                            location,
-                            null,
-                            player,
-                            true,
-                            null,
-                            false);
-                    try {
-                        SoloServerApi.getInstance().registerSSCPlayer(sscPlayer);
-                        result = new LoginResult(ResultStatus.FIRST_JOINED, "");
-                    } catch (SQLException | NullPointerException exception) {
-                        SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to save the player data.\n" +
-                                "New data will be regenerated next time.", exception);
+        val location = SoloServerCore.getInstance().getSpawnPointStockManager().takeSpawnPoint();
+        if (location == null) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "There is no stock of teleport coordinates. Please execute regeneration.");
+            return LoginResult.failed("System is in preparation.");
+        }
 
-                        result = new LoginResult(ResultStatus.FAILED, "The login process was interrupted due to a system problem.");
-                    }
-                } else {
-                    SoloServerCore.getInstance().getLogger().log(Level.WARNING, "There is no stock of teleport coordinates. Please execute regeneration.");
+        val sscPlayer = new InGameSSCPlayer(player.getUniqueId(),
+                location,
+                null,
+                player,
+                true,
+                null,
+                false);
+        try {
+            SoloServerApi.getInstance().registerSSCPlayer(sscPlayer);
+            return new LoginResult(ResultStatus.FIRST_JOINED, "", sscPlayer, null, List.of(), 0);
+        } catch (SQLException | NullPointerException exception) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to save the player data.\n" +
+                    "New data will be regenerated next time.", exception);
+            return LoginResult.failed("The login process was interrupted due to a system problem.");
+        }
+    }
 
-                    result = new LoginResult(ResultStatus.FAILED, "System is in preparation.");
-                }
-            } else {
-                result = new LoginResult(ResultStatus.JOINED, "");
-            }
+    private static LoginResult prefetchTeam(LoginResult result, long lastPlayed) {
+        if (result.status() == ResultStatus.FAILED || result.sscPlayer().getJoinedTeam() == null)
             return result;
-        });
+
+        val joinedTeam = result.sscPlayer().getJoinedTeam();
+        val core = SoloServerCore.getInstance();
+        try {
+            // 既読位置が無い場合や別のチームのものである場合は、前回のログイン以降のメッセージを未読とする
+            val cursor = core.getMessageReadCursorsTable().getReadCursor(result.sscPlayer().getId());
+            val hasCursor = cursor != null && cursor.teamId().equals(joinedTeam.getId());
+            val after = hasCursor ? cursor.lastReadDate() : new Date(lastPlayed);
+            val afterId = hasCursor ? cursor.lastReadId() : null;
+            val unreadCount = core.getMessagesTable().countNewMessages(joinedTeam.getId(), after, afterId);
+            val newMessages = unreadCount > 0
+                    ? core.getMessagesTable().getNewMessageHeaders(joinedTeam.getId(), after, afterId, NEW_MESSAGES_LIMIT)
+                    : List.<TeamMessage>of();
+            return new LoginResult(result.status(), result.message(), result.sscPlayer(), joinedTeam, newMessages, unreadCount);
+        } catch (SQLException e) {
+            core.getLogger().log(Level.WARNING, "Failed to get the unread team messages.", e);
+            return new LoginResult(result.status(), result.message(), result.sscPlayer(), joinedTeam, List.of(), 0);
+        }
     }
 
 
+    /**
+     * @param status      Result of the login process
+     * @param message     Kick message when the login process failed
+     * @param sscPlayer   Loaded player data, null when the login process failed
+     * @param joinedTeam  Team the player belongs to, or null
+     * @param newMessages Latest unread team messages, oldest first
+     * @param unreadCount Number of all unread team messages
+     */
     public record LoginResult(ResultStatus status,
-                              String message) {
+                              String message,
+                              InGameSSCPlayer sscPlayer,
+                              PlayersTeam joinedTeam,
+                              List<TeamMessage> newMessages,
+                              int unreadCount) {
+
+        static LoginResult failed(String message) {
+            return new LoginResult(ResultStatus.FAILED, message, null, null, List.of(), 0);
+        }
     }
 
     public enum ResultStatus {
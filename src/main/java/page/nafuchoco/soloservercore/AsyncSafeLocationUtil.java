@@ -16,17 +16,19 @@
 
 package page.nafuchoco.soloservercore;
 
-import io.papermc.lib.PaperLib;
 import lombok.val;
 import org.bukkit.*;
+import org.jetbrains.annotations.NotNull;
 
-import java.security.SecureRandom;
+import java.util.EnumSet;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 
 public class AsyncSafeLocationUtil {
-    private static final Set<Material> DAMAGING_TYPES = Set.of(
+    private static final Set<Material> DAMAGING_TYPES = EnumSet.of(
             Material.CACTUS,
             Material.CAMPFIRE,
             Material.FIRE,
@@ -35,80 +37,102 @@ public class AsyncSafeLocationUtil {
             Material.SOUL_FIRE,
             Material.SWEET_BERRY_BUSH,
             Material.WITHER_ROSE);
-    private static final Set<Material> FLUID_TYPES = Set.of(
+    private static final Set<Material> FLUID_TYPES = EnumSet.of(
             Material.WATER,
             Material.LAVA);
+    private static final Set<Material> AIR_TYPES = EnumSet.of(
+            Material.AIR,
+            Material.CAVE_AIR,
+            Material.VOID_AIR);
+    private static final int MIN_Y = 61;
+    private static final int MAX_Y = 120;
+
+    /**
+     * The default rule for spawn points.
+     * The block to stand on must not be air, fluid or a damaging block,
+     * and the two blocks above it must be non-solid and must not be fluid or a damaging block.
+     */
+    public static final SafeLocationPredicate DEFAULT_PREDICATE = (snapshot, x, y, z) -> {
+        val ground = snapshot.getBlockType(x, y, z);
+        if (AIR_TYPES.contains(ground) || FLUID_TYPES.contains(ground) || DAMAGING_TYPES.contains(ground))
+            return false;
+        for (int i = 1; i <= 2; i++) {
+            val above = snapshot.getBlockType(x, y + i, z);
+            if (above.isSolid() || FLUID_TYPES.contains(above) || DAMAGING_TYPES.contains(above))
+                return false;
+        }
+        return true;
+    };
+
+    private static volatile SafeLocationPredicate safetyPredicate = DEFAULT_PREDICATE;
+
+    public static SafeLocationPredicate getSafetyPredicate() {
+        return safetyPredicate;
+    }
 
+    /**
+     * Replaces the rule used to determine whether a spawn point candidate is safe.
+     *
+     * @param predicate Rule to be used
+     */
+    public static void setSafetyPredicate(@NotNull SafeLocationPredicate predicate) {
+        safetyPredicate = predicate;
+    }
 
+    /**
+     * Searches for a safe location within the range set in the config.
+     * Candidates are searched concurrently, and the search is abandoned when the number of attempts or the time limit is exceeded.
+     * This method blocks the calling thread until the search is completed, so it must not be called from the main thread.
+     *
+     * @return Safe location or null if not found
+     */
     public static Location generateNewRandomLocation() {
-        // Generate new location
-        val generateRange = SoloServerCore.getInstance().getCoreConfig().getInitConfig().generateLocationRange();
-        val spawnWorld = Bukkit.getWorld(SoloServerCore.getInstance().getCoreConfig().getInitConfig().getSpawnWorld());
-        val secureRandom = new SecureRandom();
-
-        int x;
-        int y;
-        int z;
+        val initConfig = SoloServerCore.getInstance().getCoreConfig().getInitConfig();
+        val spawnWorld = Bukkit.getWorld(initConfig.getSpawnWorld());
+        if (spawnWorld == null) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "The spawn world could not be found: {0}", initConfig.getSpawnWorld());
+            return null;
+        }
+
+        val search = new SafeLocationSearch(spawnWorld,
+                initConfig.getGenerateLocationRange(),
+                initConfig.getSearchParallelism(),
+                initConfig.getSearchMaxAttempts(),
+                AsyncSafeLocationUtil::findSafeLocation);
         Location location = null;
-
-        do {
-            x = secureRandom.nextInt(generateRange * 2) - generateRange;
-            z = secureRandom.nextInt(generateRange * 2) - generateRange;
-            y = 120;
-
-            if (SoloServerApi.getInstance().isDebug())
-                SoloServerCore.getInstance().getLogger().info("[Debug] Start Search: " + spawnWorld.getName() + ", " + x + ", " + z);
-
-            Chunk chunk = null;
-            try {
-                chunk = PaperLib.getChunkAtAsync(spawnWorld, x, z, true).get();
-            } catch (InterruptedException | ExecutionException e) {
-                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Error!", e);
-            }
-            
-            do {
-                if (SoloServerApi.getInstance().isDebug())
-                    SoloServerCore.getInstance().getLogger().log(Level.INFO, "[Debug] Searching Y: {0}", y);
-
-                if (!isUnsafe(spawnWorld, x, y, z))
-                    location = new Location(chunk.getWorld(), x, y + 1, z);
-
-                y--;
-                if (y <= 60) {
-                    if (SoloServerApi.getInstance().isDebug())
-                        SoloServerCore.getInstance().getLogger().info("[Debug] Safe location were not found.");
-                    break;
-                }
-            } while (location == null);
-            if (SoloServerApi.getInstance().isDebug())
-                SoloServerCore.getInstance().getLogger().log(Level.INFO, "[Debug] While Ended. Y: {0}", y);
-        } while (location == null);
-
+        try {
+            location = search.start().get(initConfig.getSearchTimeout(), TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Error!", e);
+        } catch (TimeoutException e) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Searching for a safe location timed out.");
+        } finally {
+            search.cancel();
+        }
+
+        if (location == null)
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING,
+                    "Safe location were not found after {0} attempts.", search.getAttempts());
         return location;
     }
 
-    public static boolean isUnsafe(World world, int x, int y, int z) {
-        return isDamagingBlock(world, x, y, z) || !isAboveAir(world, x, y, z);
-    }
-
-    public static boolean isDamagingBlock(World world, int x, int y, int z) {
-        if (SoloServerApi.getInstance().isDebug())
-            SoloServerCore.getInstance().getLogger().log(Level.INFO, "[Debug] Damage Block Checking...:");
-        val block = world.getBlockAt(x, y, z);
-        boolean result = block.getType().equals(Material.AIR)
-                || DAMAGING_TYPES.contains(block.getType())
-                || FLUID_TYPES.contains(block.getType());
-        if (SoloServerApi.getInstance().isDebug())
-            SoloServerCore.getInstance().getLogger().log(Level.INFO, "[Debug] Damage Block Check result.: {0}", result);
-        return result;
-    }
-
-    public static boolean isAboveAir(World world, int x, int y, int z) {
-        if (SoloServerApi.getInstance().isDebug())
-            SoloServerCore.getInstance().getLogger().log(Level.INFO, "[Debug] Air Checking...:");
-        boolean result = world.getBlockAt(x, y + 2, z).getType().equals(Material.AIR);
+    /**
+     * Evaluates the candidate using only the snapshot.
+     * The surface is taken from the MOTION_BLOCKING height map of the snapshot,
+     * so only a few blocks around the surface are read instead of scanning every Y level.
+     */
+    private static Location findSafeLocation(World world, ChunkSnapshot snapshot, int x, int z) {
+        val localX = x & 0xF;
+        val localZ = z & 0xF;
+        var y = snapshot.getHighestBlockYAt(localX, localZ);
+        if (y > world.getMinHeight() && AIR_TYPES.contains(snapshot.getBlockType(localX, y, localZ)))
+            y--;
+
+        val result = y >= MIN_Y && y <= MAX_Y && safetyPredicate.isSafe(snapshot, localX, y, localZ);
         if (SoloServerApi.getInstance().isDebug())
-            SoloServerCore.getInstance().getLogger().log(Level.INFO, "[Debug] Air Check result.: {0}", result);
-        return result;
+            SoloServerCore.getInstance().getLogger().info("[Debug] Check result: " + x + ", " + y + ", " + z + " -> " + result);
+        return result ? new Location(world, x, y + 1, z) : null;
     }
 }
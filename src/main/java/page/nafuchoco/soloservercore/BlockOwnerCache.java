@@ -0,0 +1,214 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.database.PluginSettingsManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Caches the player who placed each block, as recorded by CoreProtect.
+ * <p>
+ * On a cache miss the block is looked up once, and the whole chunk is then loaded in the background,
+ * so the following hits in the same area are answered from memory. Blocks placed or broken while the cache is
+ * alive are recorded directly by the block listeners. Entries are evicted in LRU order and expire after
+ * {@link #ENTRY_TTL} to pick up changes made by non-player causes. An owner is only returned while the placement
+ * is within <code>protectionPeriod</code>.
+ */
+public class BlockOwnerCache {
+    private static final long ENTRY_TTL = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_ENTRIES = 100000;
+    private static final int MAX_WARMED_CHUNKS = 4096;
+
+    private final CoreProtectClient coreProtect;
+    private final PluginSettingsManager settingsManager;
+
+    private final Map<BlockKey, Entry> entries;
+    // chunk -> time until which absent entries mean "no owner"
+    private final Map<ChunkKey, Long> warmedChunks;
+    private final Set<ChunkKey> warmingChunks;
+
+    public BlockOwnerCache(CoreProtectClient coreProtect, PluginSettingsManager settingsManager) {
+        this.coreProtect = coreProtect;
+        this.settingsManager = settingsManager;
+        entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BlockKey, Entry> eldest) {
+                if (size() > MAX_ENTRIES) {
+                    // The chunk no longer holds every entry, so absence must not be read as "no owner".
+                    warmedChunks.remove(eldest.getKey().getChunkKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+        warmedChunks = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ChunkKey, Long> eldest) {
+                return size() > MAX_WARMED_CHUNKS;
+            }
+        };
+        warmingChunks = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Returns the name of the player who placed the block within <code>protectionPeriod</code>.
+     * On a cache miss the block is looked up synchronously and the chunk is loaded in the background.
+     *
+     * @param block Block to check
+     * @return Name of the player or the cause starting with #, or null if the block is not protected
+     */
+    @Nullable
+    public String getOwner(@NotNull Block block) {
+        val key = BlockKey.of(block);
+        val now = System.currentTimeMillis();
+        synchronized (this) {
+            val entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now)
+                return entry.getOwner(now, settingsManager.getProtectionPeriod());
+
+            val warmedUntil = warmedChunks.get(key.getChunkKey());
+            if (warmedUntil != null && warmedUntil > now)
+                return null;
+        }
+
+        val action = coreProtect.getLatestAction(block, settingsManager.getProtectionPeriod());
+        val entry = action != null ? Entry.of(action, now) : new Entry(null, now, now + ENTRY_TTL);
+        synchronized (this) {
+            entries.putIfAbsent(key, entry);
+        }
+        warmChunk(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+        return entry.getOwner(now, settingsManager.getProtectionPeriod());
+    }
+
+    /**
+     * Records that the player has placed the block.
+     *
+     * @param block      Placed block
+     * @param playerName Name of the player who placed the block
+     */
+    public void recordPlaced(@NotNull Block block, @NotNull String playerName) {
+        val now = System.currentTimeMillis();
+        synchronized (this) {
+            entries.put(BlockKey.of(block), new Entry(playerName, now, now + ENTRY_TTL));
+        }
+    }
+
+    /**
+     * Records that the block has been removed.
+     *
+     * @param block Removed block
+     */
+    public void recordRemoved(@NotNull Block block) {
+        val now = System.currentTimeMillis();
+        synchronized (this) {
+            entries.put(BlockKey.of(block), new Entry(null, now, now + ENTRY_TTL));
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        warmedChunks.clear();
+    }
+
+    private void warmChunk(World world, int chunkX, int chunkZ) {
+        val chunkKey = new ChunkKey(world.getUID(), ChunkKey.pack(chunkX, chunkZ));
+        if (!warmingChunks.add(chunkKey))
+            return;
+
+        Bukkit.getScheduler().runTaskAsynchronously(SoloServerCore.getInstance(), () -> {
+            try {
+                val actions = coreProtect.getChunkActions(world, chunkX, chunkZ, settingsManager.getProtectionPeriod());
+                val now = System.currentTimeMillis();
+                synchronized (this) {
+                    // Actions are ordered newest first, and entries recorded by the listeners are newer than the log.
+                    for (CoreProtectClient.BlockAction action : actions) {
+                        val key = new BlockKey(chunkKey.world(), BlockKey.pack(action.x(), action.y(), action.z()));
+                        val current = entries.get(key);
+                        if (current == null || current.expiresAt() <= now)
+                            entries.put(key, Entry.of(action, now));
+                    }
+                    warmedChunks.put(chunkKey, now + ENTRY_TTL);
+                }
+            } catch (RuntimeException e) {
+                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to load the block history of the chunk.", e);
+            } finally {
+                warmingChunks.remove(chunkKey);
+            }
+        });
+    }
+
+    /**
+     * @param owner     Name of the player who placed the block, or null if the latest action is not a placement
+     * @param actionAt  Time of the latest action in milliseconds
+     * @param expiresAt Time until which this entry is trusted in milliseconds
+     */
+    private record Entry(String owner, long actionAt, long expiresAt) {
+
+        static Entry of(CoreProtectClient.BlockAction action, long now) {
+            return new Entry(action.actionId() == 1 ? action.player() : null, action.time(), now + ENTRY_TTL);
+        }
+
+        String getOwner(long now, int protectionPeriod) {
+            if (owner == null)
+                return null;
+            if (protectionPeriod > 0 && now - actionAt > TimeUnit.SECONDS.toMillis(protectionPeriod))
+                return null;
+            return owner;
+        }
+    }
+
+    private record BlockKey(UUID world, long position) {
+
+        static BlockKey of(Block block) {
+            return new BlockKey(block.getWorld().getUID(), pack(block.getX(), block.getY(), block.getZ()));
+        }
+
+        static long pack(int x, int y, int z) {
+            return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | ((long) y & 0xFFF);
+        }
+
+        ChunkKey getChunkKey() {
+            val x = (int) (position >> 38);
+            val z = (int) (position << 26 >> 38);
+            return new ChunkKey(world, ChunkKey.pack(x >> 4, z >> 4));
+        }
+    }
+
+    private record ChunkKey(UUID world, long chunk) {
+
+        static long pack(int chunkX, int chunkZ) {
+            return (long) chunkX << 32 | ((long) chunkZ & 0xFFFFFFFFL);
+        }
+    }
+}
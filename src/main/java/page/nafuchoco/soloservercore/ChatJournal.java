@@ -0,0 +1,289 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records chat messages to daily files in the <code>chatlog</code> folder, without writing them to the server log.
+ * <p>
+ * Chat threads only put the messages into a lock-free ring buffer. {@link #drain()} writes them from a background task
+ * to the file of the day, and the file of a previous day is compressed with gzip once the day has changed.
+ * When the buffer is full, new messages are dropped and counted instead of blocking the chat threads.
+ */
+public class ChatJournal {
+    private static final String PLAIN_SUFFIX = ".log";
+    private static final String COMPRESSED_SUFFIX = ".log.gz";
+
+    private final File directory;
+    private final ZoneId zone;
+    private final AtomicReferenceArray<JournalEntry> buffer;
+    private final int mask;
+    // next sequence to be written by the chat threads
+    private final AtomicLong tail;
+    // next sequence to be read by the writer
+    private final AtomicLong head;
+    private final AtomicLong dropped;
+
+    private LocalDate currentDate;
+    private Writer writer;
+
+    /**
+     * @param directory Folder the journal files are written to
+     * @param capacity  Number of messages the buffer can hold, rounded up to a power of two
+     */
+    public ChatJournal(@NotNull File directory, int capacity) {
+        this.directory = directory;
+        zone = ZoneId.systemDefault();
+        val size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        buffer = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+        tail = new AtomicLong();
+        head = new AtomicLong();
+        dropped = new AtomicLong();
+    }
+
+    /**
+     * Adds a chat message to the journal. This can be called from any thread.
+     *
+     * @param player  UUID of the player who sent the message
+     * @param name    Name of the player who sent the message
+     * @param message Message without color codes
+     * @return true if the message was added, false if the buffer was full
+     */
+    public boolean record(@NotNull UUID player, @NotNull String name, @NotNull String message) {
+        val entry = new JournalEntry(System.currentTimeMillis(), player, name, message);
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() >= buffer.length()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        buffer.set((int) (sequence & mask), entry);
+        return true;
+    }
+
+    public long getPendingCount() {
+        return tail.get() - head.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Compresses the files of previous days left uncompressed by the last run.
+     */
+    public synchronized void start() {
+        if (!directory.exists() && !directory.mkdirs()) {
+            SoloServerCore.getInstance().getLogger().warning("Failed to create the chat log folder.");
+            return;
+        }
+        val today = LocalDate.now(zone);
+        val files = directory.listFiles((dir, name) -> name.endsWith(PLAIN_SUFFIX));
+        if (files == null)
+            return;
+        for (File file : files) {
+            val date = parseDate(file.getName());
+            if (date != null && date.isBefore(today))
+                compress(file);
+        }
+    }
+
+    /**
+     * Writes the buffered messages to the file. Call this periodically from an asynchronous task.
+     */
+    public synchronized void drain() {
+        var sequence = head.get();
+        if (sequence == tail.get())
+            return;
+
+        try {
+            while (true) {
+                val index = (int) (sequence & mask);
+                val entry = buffer.get(index);
+                // The chat thread has reserved the slot but not written it yet.
+                if (entry == null)
+                    break;
+                buffer.set(index, null);
+                head.set(++sequence);
+
+                val instant = Instant.ofEpochMilli(entry.time());
+                val date = LocalDate.ofInstant(instant, zone);
+                if (!date.equals(currentDate))
+                    openWriter(date);
+                writer.write(LocalTime.ofInstant(instant, zone).withNano(0) + "\t"
+                        + entry.player() + "\t" + entry.name() + "\t" + sanitize(entry.message()) + "\n");
+            }
+            if (writer != null)
+                writer.flush();
+        } catch (IOException e) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to write the chat log.", e);
+            closeWriter();
+        }
+    }
+
+    /**
+     * Writes the remaining messages and closes the file. Call this when the plugin is disabled.
+     */
+    public synchronized void close() {
+        drain();
+        closeWriter();
+    }
+
+    /**
+     * Searches the journal for the latest messages, newest day first. This reads the files, so call it asynchronously.
+     *
+     * @param playerName Name of the player to search for, or null to search all players
+     * @param days       Number of days to search, including today
+     * @param limit      Maximum number of lines to return
+     * @return Matching lines prefixed with the date, in chronological order
+     */
+    @NotNull
+    public List<String> search(String playerName, int days, int limit) {
+        drain();
+        val result = new ArrayDeque<String>(limit);
+        var date = LocalDate.now(zone);
+        for (int i = 0; i < days && result.size() < limit; i++, date = date.minusDays(1)) {
+            val found = searchFile(date, playerName, limit - result.size());
+            for (int j = found.size() - 1; j >= 0; j--)
+                result.addFirst(found.get(j));
+        }
+        return new ArrayList<>(result);
+    }
+
+    private List<String> searchFile(LocalDate date, String playerName, int limit) {
+        val lines = new ArrayDeque<String>(limit);
+        val plain = new File(directory, date + PLAIN_SUFFIX);
+        val compressed = new File(directory, date + COMPRESSED_SUFFIX);
+        try (BufferedReader reader = openReader(plain, compressed)) {
+            if (reader == null)
+                return List.of();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                val columns = line.split("\t", 4);
+                if (columns.length < 4 || (playerName != null && !columns[2].equalsIgnoreCase(playerName)))
+                    continue;
+                if (lines.size() == limit)
+                    lines.removeFirst();
+                lines.addLast(date + " " + columns[0] + " " + columns[2] + " >> " + columns[3]);
+            }
+        } catch (IOException e) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to read the chat log.", e);
+        }
+        return new ArrayList<>(lines);
+    }
+
+    // A day can have both files, when a late message reopens the file of a compressed day or the compressed file
+    // could not be deleted. The compressed lines were written first, so they are read before the plain ones.
+    private BufferedReader openReader(File plain, File compressed) throws IOException {
+        val streams = new ArrayList<InputStream>(2);
+        try {
+            if (compressed.exists()) {
+                val in = new FileInputStream(compressed);
+                try {
+                    streams.add(new GZIPInputStream(in));
+                } catch (IOException e) {
+                    in.close();
+                    throw e;
+                }
+            }
+            if (plain.exists())
+                streams.add(new FileInputStream(plain));
+        } catch (IOException e) {
+            for (InputStream stream : streams)
+                stream.close();
+            throw e;
+        }
+        if (streams.isEmpty())
+            return null;
+        return new BufferedReader(new InputStreamReader(
+                new SequenceInputStream(Collections.enumeration(streams)), StandardCharsets.UTF_8));
+    }
+
+    private void openWriter(LocalDate date) throws IOException {
+        val previous = currentDate;
+        closeWriter();
+        if (previous != null && previous.isBefore(date))
+            compress(new File(directory, previous + PLAIN_SUFFIX));
+        currentDate = date;
+        writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(directory, date + PLAIN_SUFFIX), true), StandardCharsets.UTF_8));
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to close the chat log.", e);
+            }
+        }
+        writer = null;
+        currentDate = null;
+    }
+
+    private void compress(File plain) {
+        if (!plain.exists())
+            return;
+        val compressed = new File(directory, plain.getName() + ".gz");
+        try (InputStream in = new FileInputStream(plain);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed, true))) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to compress the chat log.", e);
+            return;
+        }
+        if (!plain.delete())
+            SoloServerCore.getInstance().getLogger().warning("Failed to delete the compressed chat log " + plain.getName() + ".");
+    }
+
+    private static LocalDate parseDate(String fileName) {
+        try {
+            return LocalDate.parse(fileName.substring(0, fileName.length() - PLAIN_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String sanitize(String message) {
+        return message.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private record JournalEntry(long time, UUID player, String name, String message) {
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.data.PlayersTeam;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the recipients of the chat, so that a chat message can be delivered without scanning the online players.
+ * <p>
+ * The online players of each team and the players allowed to read every chat are updated by the join, quit
+ * and team events. The recipients are read from the async chat thread, while all updates must be made from the main thread.
+ */
+public class ChatRouter {
+    public static final String BYPASS_PERMISSION = "soloservercore.chat.bypass";
+
+    // player -> team the player is chatting in
+    private final Map<UUID, UUID> playerTeams;
+    // team -> online owner and members
+    private final Map<UUID, Set<Player>> teamRecipients;
+    private final Set<Player> bypassPlayers;
+
+    public ChatRouter() {
+        playerTeams = new ConcurrentHashMap<>();
+        teamRecipients = new ConcurrentHashMap<>();
+        bypassPlayers = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Returns the online players of the team the player belongs to, including the player.
+     *
+     * @param player UUID of the player
+     * @return Online players of the team or an empty collection if the player does not belong to any team
+     */
+    @NotNull
+    public Collection<Player> getTeamRecipients(@NotNull UUID player) {
+        val team = playerTeams.get(player);
+        if (team == null)
+            return Collections.emptySet();
+        val recipients = teamRecipients.get(team);
+        return recipients != null ? recipients : Collections.emptySet();
+    }
+
+    /**
+     * Returns the online players who have the permission to read every chat.
+     *
+     * @return Players who read every chat
+     */
+    @NotNull
+    public Collection<Player> getBypassPlayers() {
+        return bypassPlayers;
+    }
+
+    /**
+     * Adds the player who has completed the login to the recipients of the team.
+     *
+     * @param player Player who has completed the login
+     * @param team   Team the player belongs to
+     */
+    public void playerJoined(@NotNull Player player, @Nullable PlayersTeam team) {
+        if (team != null && team.isOwnerOrMember(player.getUniqueId()))
+            teamJoined(player, team);
+    }
+
+    /**
+     * Removes the player from all recipients.
+     *
+     * @param player Player who quits
+     */
+    public void playerQuit(@NotNull Player player) {
+        teamLeft(player);
+        bypassPlayers.remove(player);
+    }
+
+    /**
+     * Adds the player to the recipients of the team. Call this when the player has created or joined the team.
+     *
+     * @param player Player who has joined the team
+     * @param team   Team the player has joined
+     */
+    public void teamJoined(@NotNull Player player, @NotNull PlayersTeam team) {
+        teamLeft(player);
+        playerTeams.put(player.getUniqueId(), team.getId());
+        teamRecipients.computeIfAbsent(team.getId(), id -> ConcurrentHashMap.newKeySet()).add(player);
+    }
+
+    /**
+     * Removes the player from the recipients of the team the player has belonged to.
+     *
+     * @param player Player who has left the team
+     */
+    public void teamLeft(@NotNull Player player) {
+        val team = playerTeams.remove(player.getUniqueId());
+        if (team == null)
+            return;
+        val recipients = teamRecipients.get(team);
+        if (recipients != null) {
+            recipients.remove(player);
+            if (recipients.isEmpty())
+                teamRecipients.remove(team);
+        }
+    }
+
+    /**
+     * Removes all recipients of the team. Call this when the team has disappeared.
+     *
+     * @param teamId ID of the team
+     */
+    public void teamDisappeared(@NotNull UUID teamId) {
+        val recipients = teamRecipients.remove(teamId);
+        if (recipients != null)
+            recipients.forEach(player -> playerTeams.remove(player.getUniqueId(), teamId));
+    }
+
+    /**
+     * Checks the permission of the player again. Call this when the permissions of the player may have changed.
+     *
+     * @param player Player to check
+     */
+    public void updatePermission(@NotNull Player player) {
+        if (player.isOnline() && player.hasPermission(BYPASS_PERMISSION))
+            bypassPlayers.add(player);
+        else
+            bypassPlayers.remove(player);
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.data.PlayersTeam;
+import page.nafuchoco.soloservercore.database.ChunkClaimsTable;
+import page.nafuchoco.soloservercore.database.PluginSettingsManager;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Records which players have placed blocks in each chunk, so that edits in a chunk touched only by the player
+ * or the teammates can be allowed without looking up CoreProtect.
+ * <p>
+ * The index only covers placements made while it has been recorded, so it is used only after it has been recorded
+ * continuously for longer than <code>protectionPeriod</code>. The claims of a chunk are loaded from
+ * {@link ChunkClaimsTable} when the chunk is first checked and dropped when the chunk is unloaded.
+ * New claims are written in a batch by {@link #flush()}, which should be called off the main thread.
+ */
+public class ChunkClaimIndex {
+    // Placements by the same player in the same chunk are written at most once per this interval.
+    private static final long WRITE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private final ChunkClaimsTable claimsTable;
+    private final PluginSettingsManager settingsManager;
+    private final Map<ChunkKey, ChunkState> chunks;
+    private final Map<ClaimKey, Long> pending;
+    private final Map<ClaimKey, Long> inFlight;
+    private final Object flushLock;
+
+    public ChunkClaimIndex(ChunkClaimsTable claimsTable, PluginSettingsManager settingsManager) {
+        this.claimsTable = claimsTable;
+        this.settingsManager = settingsManager;
+        chunks = new ConcurrentHashMap<>();
+        pending = new ConcurrentHashMap<>();
+        inFlight = new ConcurrentHashMap<>();
+        flushLock = new Object();
+    }
+
+    /**
+     * Starts recording the index if it has not been recorded, and deletes the claims that are no longer protected.
+     */
+    public void start() {
+        if (settingsManager.getChunkClaimsSince() <= 0) {
+            try {
+                settingsManager.setChunkClaimsSince(System.currentTimeMillis());
+            } catch (SQLException e) {
+                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to save the chunk claim settings.", e);
+            }
+        }
+
+        val protectionPeriod = settingsManager.getProtectionPeriod();
+        if (protectionPeriod > 0) {
+            val expired = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(protectionPeriod);
+            Bukkit.getScheduler().runTaskAsynchronously(SoloServerCore.getInstance(), () -> {
+                try {
+                    claimsTable.deleteChunkClaimsBefore(expired);
+                } catch (SQLException e) {
+                    SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to delete the expired chunk claims.", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns whether every player who has placed blocks in the chunk of the block within <code>protectionPeriod</code>
+     * is the player or a member of the team.
+     * Returns false while the answer is unknown, in which case the caller should fall back to CoreProtect.
+     *
+     * @param block  Block to be edited
+     * @param player Player who edits the block
+     * @param team   Team the player belongs to, or null
+     * @return true if the edit can be allowed without looking up CoreProtect
+     */
+    public boolean isClaimedOnlyBy(@NotNull Block block, @NotNull Player player, @Nullable PlayersTeam team) {
+        val protectionPeriod = TimeUnit.SECONDS.toMillis(settingsManager.getProtectionPeriod());
+        val since = settingsManager.getChunkClaimsSince();
+        val now = System.currentTimeMillis();
+        if (protectionPeriod <= 0 || since <= 0 || now - since < protectionPeriod)
+            return false;
+
+        val state = getState(ChunkKey.of(block));
+        if (!state.loaded)
+            return false;
+        for (Map.Entry<UUID, Long> claim : state.owners.entrySet()) {
+            val owner = claim.getKey();
+            if (now - claim.getValue() > protectionPeriod || owner.equals(player.getUniqueId()))
+                continue;
+            if (team != null && team.isOwnerOrMember(owner))
+                continue;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records that the player has placed the block.
+     *
+     * @param block  Placed block
+     * @param player UUID of the player who placed the block
+     */
+    public void recordPlaced(@NotNull Block block, @NotNull UUID player) {
+        val key = ChunkKey.of(block);
+        val now = System.currentTimeMillis();
+        val before = getState(key).owners.put(player, now);
+        if (before == null || now - before >= WRITE_INTERVAL)
+            pending.merge(new ClaimKey(key, player), now, Math::max);
+    }
+
+    /**
+     * Drops the claims of the unloaded chunk from memory.
+     *
+     * @param chunk Unloaded chunk
+     */
+    public void chunkUnloaded(@NotNull Chunk chunk) {
+        chunks.remove(new ChunkKey(chunk.getWorld().getName(), chunk.getX(), chunk.getZ()));
+    }
+
+    public int getLoadedChunkCount() {
+        return chunks.size();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Writes all unwritten claims in a batch.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<ChunkClaimsTable.ChunkClaim> claims = new ArrayList<>();
+            for (ClaimKey key : pending.keySet()) {
+                val lastPlaced = pending.remove(key);
+                if (lastPlaced != null) {
+                    inFlight.put(key, lastPlaced);
+                    claims.add(new ChunkClaimsTable.ChunkClaim(key.chunk().world(), key.chunk().x(), key.chunk().z(),
+                            key.player(), lastPlaced));
+                }
+            }
+            if (claims.isEmpty())
+                return;
+
+            try {
+                claimsTable.updateChunkClaims(claims);
+            } catch (SQLException e) {
+                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the chunk claims. It will be retried later.", e);
+                claims.forEach(claim -> pending.merge(
+                        new ClaimKey(new ChunkKey(claim.world(), claim.chunkX(), claim.chunkZ()), claim.player()),
+                        claim.lastPlaced(),
+                        Math::max));
+            } finally {
+                claims.forEach(claim -> inFlight.remove(
+                        new ClaimKey(new ChunkKey(claim.world(), claim.chunkX(), claim.chunkZ()), claim.player())));
+            }
+        }
+    }
+
+    private ChunkState getState(ChunkKey key) {
+        val state = chunks.get(key);
+        if (state != null)
+            return state;
+
+        val created = new ChunkState();
+        val existing = chunks.putIfAbsent(key, created);
+        if (existing != null)
+            return existing;
+        load(key, created);
+        return created;
+    }
+
+    private void load(ChunkKey key, ChunkState state) {
+        Bukkit.getScheduler().runTaskAsynchronously(SoloServerCore.getInstance(), () -> {
+            try {
+                claimsTable.getChunkClaims(key.world(), key.x(), key.z())
+                        .forEach((player, lastPlaced) -> state.owners.merge(player, lastPlaced, Math::max));
+                // Claims recorded before the chunk was last unloaded may not have been written yet.
+                mergeUnwritten(key, state, inFlight);
+                mergeUnwritten(key, state, pending);
+                state.loaded = true;
+            } catch (SQLException e) {
+                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to get the chunk claims.", e);
+                chunks.remove(key, state);
+            }
+        });
+    }
+
+    private void mergeUnwritten(ChunkKey key, ChunkState state, Map<ClaimKey, Long> unwritten) {
+        unwritten.forEach((claim, lastPlaced) -> {
+            if (claim.chunk().equals(key))
+                state.owners.merge(claim.player(), lastPlaced, Math::max);
+        });
+    }
+
+    private static class ChunkState {
+        private final Map<UUID, Long> owners = new ConcurrentHashMap<>();
+        private volatile boolean loaded;
+    }
+
+    private record ChunkKey(String world, int x, int z) {
+
+        static ChunkKey of(Block block) {
+            return new ChunkKey(block.getWorld().getName(), block.getX() >> 4, block.getZ() >> 4);
+        }
+    }
+
+    private record ClaimKey(ChunkKey chunk, UUID player) {
+    }
+}
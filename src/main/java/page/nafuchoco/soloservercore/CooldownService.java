@@ -0,0 +1,201 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Provides UUID-keyed cooldowns and confirmation windows that expire by themselves.
+ * <p>
+ * Each {@link Cooldown} keeps its entries with a primitive expiry time from {@link System#nanoTime()},
+ * so checking a cooldown does not allocate. Expired entries are removed by a {@link TimerWheel} advanced
+ * by {@link #tick()} once a second, so entries never stay in memory after they have expired.
+ * All methods must be called from the main thread.
+ */
+public class CooldownService {
+    private final TimerWheel<Entry<?>> wheel;
+
+    public CooldownService() {
+        wheel = new TimerWheel<>(this::expire);
+    }
+
+    /**
+     * Creates a new cooldown whose entries are expired by this service.
+     *
+     * @param <T> Type of the value kept with each entry
+     * @return New cooldown
+     */
+    public <T> Cooldown<T> newCooldown() {
+        return new Cooldown<>();
+    }
+
+    /**
+     * Advances the wheel by one second and removes the entries that have expired. Call this every 20 ticks.
+     */
+    public void tick() {
+        wheel.tick();
+    }
+
+    private void schedule(Entry<?> entry, long duration) {
+        // Round up so that the entry is never removed before it expires.
+        wheel.schedule(entry, TimeUnit.NANOSECONDS.toSeconds(duration) + 1);
+    }
+
+    private void expire(Entry<?> entry) {
+        // The wheel counts whole seconds, so the entry may be reached slightly before it expires.
+        val remaining = entry.expiresAt - System.nanoTime();
+        if (remaining > 0)
+            schedule(entry, remaining);
+        else
+            entry.cooldown.entries.remove(entry.key, entry);
+    }
+
+    public final class Cooldown<T> {
+        private final Map<UUID, Entry<T>> entries;
+
+        private Cooldown() {
+            entries = new HashMap<>();
+        }
+
+        /**
+         * Starts or restarts the cooldown of the key.
+         *
+         * @param key      Key of the cooldown, usually the UUID of a player
+         * @param duration Duration of the cooldown
+         * @param unit     Unit of the duration
+         */
+        public void start(@NotNull UUID key, long duration, @NotNull TimeUnit unit) {
+            start(key, duration, unit, null);
+        }
+
+        /**
+         * Starts or restarts the cooldown of the key with a value kept until it expires.
+         *
+         * @param key      Key of the cooldown, usually the UUID of a player
+         * @param duration Duration of the cooldown
+         * @param unit     Unit of the duration
+         * @param value    Value kept with the cooldown
+         */
+        public void start(@NotNull UUID key, long duration, @NotNull TimeUnit unit, @Nullable T value) {
+            val nanos = unit.toNanos(duration);
+            var entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry<>(this, key);
+                entries.put(key, entry);
+            }
+            entry.expiresAt = System.nanoTime() + nanos;
+            entry.value = value;
+            schedule(entry, nanos);
+        }
+
+        /**
+         * Returns whether the cooldown of the key has not expired.
+         *
+         * @param key Key of the cooldown
+         * @return true if the cooldown is active
+         */
+        public boolean isActive(@NotNull UUID key) {
+            return getActiveEntry(key) != null;
+        }
+
+        /**
+         * Returns the value kept with the cooldown of the key.
+         *
+         * @param key Key of the cooldown
+         * @return Value or null if the cooldown is not active
+         */
+        @Nullable
+        public T get(@NotNull UUID key) {
+            val entry = getActiveEntry(key);
+            return entry != null ? entry.value : null;
+        }
+
+        /**
+         * Ends the cooldown of the key and returns whether it was active.
+         *
+         * @param key Key of the cooldown
+         * @return true if the cooldown was active
+         */
+        public boolean remove(@NotNull UUID key) {
+            val entry = entries.remove(key);
+            if (entry == null)
+                return false;
+            wheel.cancel(entry);
+            return entry.expiresAt - System.nanoTime() > 0;
+        }
+
+        /**
+         * Ends the cooldown of the key and returns the value kept with it.
+         *
+         * @param key Key of the cooldown
+         * @return Value or null if the cooldown was not active
+         */
+        @Nullable
+        public T take(@NotNull UUID key) {
+            val entry = entries.remove(key);
+            if (entry == null)
+                return null;
+            wheel.cancel(entry);
+            return entry.expiresAt - System.nanoTime() > 0 ? entry.value : null;
+        }
+
+        /**
+         * Ends the cooldowns whose value matches the filter.
+         *
+         * @param filter Filter of the values to remove
+         */
+        public void removeIf(@NotNull Predicate<? super T> filter) {
+            entries.values().removeIf(entry -> {
+                if (!filter.test(entry.value))
+                    return false;
+                wheel.cancel(entry);
+                return true;
+            });
+        }
+
+        public int size() {
+            return entries.size();
+        }
+
+        private Entry<T> getActiveEntry(UUID key) {
+            val entry = entries.get(key);
+            if (entry == null || entry.expiresAt - System.nanoTime() <= 0)
+                return null;
+            return entry;
+        }
+    }
+
+    private static final class Entry<T> {
+        private final CooldownService.Cooldown<T> cooldown;
+        private final UUID key;
+        private long expiresAt;
+        private T value;
+
+        private Entry(CooldownService.Cooldown<T> cooldown, UUID key) {
+            this.cooldown = cooldown;
+            this.key = key;
+        }
+    }
+}
@@ -17,8 +17,11 @@
 package page.nafuchoco.soloservercore;
 
 import net.coreprotect.CoreProtectAPI;
+import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class CoreProtectClient {
@@ -29,12 +32,63 @@ public class CoreProtectClient {
     }
 
     public String getAction(Block block, int time) {
+        var action = getLatestAction(block, time);
+        if (action != null && action.actionId() == 1)
+            return action.player();
+        return null;
+    }
+
+    /**
+     * Returns the latest action recorded on the block.
+     *
+     * @param block Block to look up
+     * @param time  Time range to look up in seconds, 0 for all time
+     * @return Latest action or null if there is no record
+     */
+    public BlockAction getLatestAction(Block block, int time) {
         List<String[]> lookup = coreProtectAPI.blockLookup(block, time);
         if (!lookup.isEmpty()) {
             var result = coreProtectAPI.parseResult(lookup.get(0));
-            if (result.getActionId() == 1)
-                return result.getPlayer();
+            return new BlockAction(result.getX(), result.getY(), result.getZ(),
+                    result.getPlayer(), result.getActionId(), result.getTimestamp());
         }
         return null;
     }
+
+    /**
+     * Returns the latest action recorded on each block of the chunk, newest first.
+     * This method runs a database lookup and must not be called from the main thread.
+     *
+     * @param world  World of the chunk
+     * @param chunkX Chunk x
+     * @param chunkZ Chunk z
+     * @param time   Time range to look up in seconds, 0 for all time
+     * @return Latest actions in the chunk
+     */
+    public List<BlockAction> getChunkActions(World world, int chunkX, int chunkZ, int time) {
+        // A radius lookup covers every height, so a radius of 8 around the chunk center covers the whole chunk.
+        var center = new Location(world, (chunkX << 4) + 8, 0, (chunkZ << 4) + 8);
+        List<String[]> lookup = coreProtectAPI.performLookup(time, null, null, null, null, null, 8, center);
+        List<BlockAction> actions = new ArrayList<>();
+        if (lookup != null) {
+            for (String[] row : lookup) {
+                var result = coreProtectAPI.parseResult(row);
+                if (result.getX() >> 4 == chunkX && result.getZ() >> 4 == chunkZ)
+                    actions.add(new BlockAction(result.getX(), result.getY(), result.getZ(),
+                            result.getPlayer(), result.getActionId(), result.getTimestamp()));
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * @param x        Block x
+     * @param y        Block y
+     * @param z        Block z
+     * @param player   Name of the player or the cause starting with #
+     * @param actionId 0 for removal, 1 for placement, 2 for interaction
+     * @param time     Time of the action in milliseconds
+     */
+    public record BlockAction(int x, int y, int z, String player, int actionId, long time) {
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ログイン処理が完了したプレイヤーが最後にブロック単位で移動した時刻を記録します。
+ * 時刻は {@link System#nanoTime()} で記録されるため、システム時刻の変更の影響を受けません。
+ * 移動の記録はオブジェクトの生成やデータベースへのアクセスを行いません。
+ *
+ * @since v5.2
+ */
+public class PlayerActivityTracker {
+    private final Map<UUID, AtomicLong> lastMoves;
+
+    public PlayerActivityTracker() {
+        lastMoves = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * プレイヤーの記録を開始します。ログインした時点を最後の移動として扱います。
+     *
+     * @param player ログイン処理が完了したプレイヤー
+     */
+    public void playerJoined(@NotNull Player player) {
+        lastMoves.put(player.getUniqueId(), new AtomicLong(System.nanoTime()));
+    }
+
+    /**
+     * プレイヤーの記録を破棄します。
+     *
+     * @param player ログアウトするプレイヤー
+     */
+    public void playerQuit(@NotNull Player player) {
+        lastMoves.remove(player.getUniqueId());
+    }
+
+    /**
+     * プレイヤーが移動したことを記録します。
+     *
+     * @param player 移動したプレイヤー
+     * @return 記録された場合 true, ログイン処理が完了していない場合 false
+     */
+    public boolean recordMove(@NotNull Player player) {
+        val lastMove = lastMoves.get(player.getUniqueId());
+        if (lastMove == null)
+            return false;
+        lastMove.set(System.nanoTime());
+        return true;
+    }
+
+    /**
+     * プレイヤーの記録が行われているかを返します。
+     *
+     * @param uuid プレイヤーのUUID
+     * @return ログイン処理が完了しオンラインである場合 true
+     */
+    public boolean isTracked(@NotNull UUID uuid) {
+        return lastMoves.containsKey(uuid);
+    }
+
+    /**
+     * プレイヤーが最後に移動してからの経過時間を返します。
+     *
+     * @param uuid プレイヤーのUUID
+     * @param unit 返す時間の単位
+     * @return 経過時間 もしくは 記録が行われていない場合は -1
+     */
+    public long getIdleTime(@NotNull UUID uuid, @NotNull TimeUnit unit) {
+        val lastMove = lastMoves.get(uuid);
+        if (lastMove == null)
+            return -1;
+        return unit.convert(System.nanoTime() - lastMove.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * プレイヤーが最後に移動したシステム時刻を返します。
+     *
+     * @param uuid プレイヤーのUUID
+     * @return エポックミリ秒 もしくは 記録が行われていない場合は 0
+     */
+    public long getLatestMoveTime(@NotNull UUID uuid) {
+        val idleTime = getIdleTime(uuid, TimeUnit.MILLISECONDS);
+        if (idleTime < 0)
+            return 0;
+        return System.currentTimeMillis() - idleTime;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import page.nafuchoco.soloservercore.data.TempSSCPlayer;
+
+import java.util.*;
+
+/**
+ * Isolates players who are not in the same team from each other.
+ * <p>
+ * The manager remembers which players each viewer has hidden, so a change only queues the pairs whose visibility
+ * actually differs. The queued pairs are applied by {@link #applyPending()} a limited number per tick.
+ * Hidden players stay hidden in the viewer after they quit, so nothing has to be shown again on quit.
+ * All methods must be called from the main thread.
+ */
+public class PlayerVisibilityManager {
+    private static final String BYPASS_PERMISSION = "soloservercore.invisible.bypass";
+
+    private final int applyPerTick;
+    // viewer -> players hidden from the viewer
+    private final Map<UUID, Set<UUID>> hiddenPlayers;
+    private final Deque<Pair> pendingQueue;
+    private final Set<Pair> pendingPairs;
+
+    public PlayerVisibilityManager(int applyPerTick) {
+        this.applyPerTick = applyPerTick;
+        hiddenPlayers = new HashMap<>();
+        pendingQueue = new ArrayDeque<>();
+        pendingPairs = new HashSet<>();
+    }
+
+    /**
+     * Updates the visibility between the player who has just joined and all online players.
+     *
+     * @param player Player who has just joined
+     */
+    public void playerJoined(@NotNull Player player) {
+        // The viewer state is per session, so a new session starts with everyone visible.
+        hiddenPlayers.remove(player.getUniqueId());
+        updatePlayer(player);
+    }
+
+    /**
+     * Discards the state of the player as a viewer.
+     * The state as a target is kept because the other players still hide the player after the player quits.
+     *
+     * @param player Player who is quitting
+     */
+    public void playerQuit(@NotNull Player player) {
+        hiddenPlayers.remove(player.getUniqueId());
+    }
+
+    /**
+     * Updates the visibility between the player and all online players.
+     * Call this when the team of the player has changed.
+     *
+     * @param player Player whose visibility is updated
+     */
+    public void updatePlayer(@NotNull Player player) {
+        val playerTeam = getTeamId(player.getUniqueId());
+        val playerBypass = player.hasPermission(BYPASS_PERMISSION);
+        for (Player other : Bukkit.getOnlinePlayers()) {
+            if (other.equals(player))
+                continue;
+            val sameTeam = playerTeam != null && playerTeam.equals(getTeamId(other.getUniqueId()));
+            setVisible(player.getUniqueId(), other.getUniqueId(), sameTeam || playerBypass);
+            setVisible(other.getUniqueId(), player.getUniqueId(), sameTeam || other.hasPermission(BYPASS_PERMISSION));
+        }
+    }
+
+    /**
+     * Applies the queued visibility changes up to the limit per tick.
+     */
+    public void applyPending() {
+        val plugin = SoloServerCore.getInstance();
+        for (int i = 0; i < applyPerTick && !pendingQueue.isEmpty(); i++) {
+            val pair = pendingQueue.poll();
+            pendingPairs.remove(pair);
+
+            val viewer = Bukkit.getPlayer(pair.viewer());
+            if (viewer == null)
+                continue;
+            val target = Bukkit.getPlayer(pair.target());
+            val hidden = isHidden(pair.viewer(), pair.target());
+            if (target != null) {
+                if (hidden)
+                    viewer.hidePlayer(plugin, target);
+                else
+                    viewer.showPlayer(plugin, target);
+            } else if (hidden) {
+                // The target quit before being hidden, so it is hidden again when it joins next time.
+                hiddenPlayers.get(pair.viewer()).remove(pair.target());
+            } else {
+                // The target quit before being shown, and the viewer still hides it.
+                hiddenPlayers.computeIfAbsent(pair.viewer(), key -> new HashSet<>()).add(pair.target());
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        return pendingQueue.size();
+    }
+
+    private void setVisible(UUID viewer, UUID target, boolean visible) {
+        val hidden = hiddenPlayers.computeIfAbsent(viewer, key -> new HashSet<>());
+        val changed = visible ? hidden.remove(target) : hidden.add(target);
+        if (changed) {
+            val pair = new Pair(viewer, target);
+            if (pendingPairs.add(pair))
+                pendingQueue.add(pair);
+        }
+    }
+
+    private boolean isHidden(UUID viewer, UUID target) {
+        val hidden = hiddenPlayers.get(viewer);
+        return hidden != null && hidden.contains(target);
+    }
+
+    private UUID getTeamId(UUID uuid) {
+        val sscPlayer = SoloServerApi.getInstance().getSSCPlayer(uuid);
+        if (sscPlayer == null || sscPlayer instanceof TempSSCPlayer)
+            return null;
+        return sscPlayer.getJoinedTeamId();
+    }
+
+    private record Pair(UUID viewer, UUID target) {
+    }
+}
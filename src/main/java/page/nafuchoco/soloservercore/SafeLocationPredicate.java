@@ -0,0 +1,37 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import org.bukkit.ChunkSnapshot;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Determines whether a player can safely stand on the specified block.
+ * It is evaluated off the main thread, so only the given snapshot may be read.
+ */
+@FunctionalInterface
+public interface SafeLocationPredicate {
+
+    /**
+     * @param snapshot Snapshot of the chunk containing the block
+     * @param x        Block x in the chunk (0-15)
+     * @param y        Block y of the block on which the player stands
+     * @param z        Block z in the chunk (0-15)
+     * @return true if the player can safely stand on the block
+     */
+    boolean isSafe(@NotNull ChunkSnapshot snapshot, int x, int y, int z);
+}
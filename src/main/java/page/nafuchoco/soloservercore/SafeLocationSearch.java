@@ -0,0 +1,135 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import io.papermc.lib.PaperLib;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.security.SecureRandom;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Searches a safe location by loading several random candidate chunks at the same time.
+ * The first safe candidate completes the search and the remaining candidates are cancelled.
+ * When the number of tried candidates reaches <code>maxAttempts</code>, the search completes with null.
+ * Only the snapshot of each loaded chunk is taken on the main thread, and the probe itself runs off the main thread.
+ */
+class SafeLocationSearch {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Executor MAIN_THREAD =
+            runnable -> Bukkit.getScheduler().runTask(SoloServerCore.getInstance(), runnable);
+
+    private final World world;
+    private final int range;
+    private final int parallelism;
+    private final int maxAttempts;
+    private final Probe probe;
+
+    private final CompletableFuture<Location> result;
+    private final Set<CompletableFuture<Location>> pending;
+    private final AtomicInteger attempts;
+    private final AtomicInteger running;
+
+    /**
+     * @param world       World to search
+     * @param range       Range of coordinates to search from the center of the world
+     * @param parallelism Number of candidates searched concurrently
+     * @param maxAttempts Maximum number of candidates to try
+     * @param probe       Function to find a safe location from the chunk snapshot and the candidate block x, z
+     */
+    SafeLocationSearch(World world, int range, int parallelism, int maxAttempts, Probe probe) {
+        this.world = world;
+        this.range = range;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.probe = probe;
+        result = new CompletableFuture<>();
+        pending = ConcurrentHashMap.newKeySet();
+        attempts = new AtomicInteger();
+        running = new AtomicInteger();
+    }
+
+    CompletableFuture<Location> start() {
+        for (int i = 0; i < parallelism; i++)
+            tryNext();
+        return result;
+    }
+
+    void cancel() {
+        result.complete(null);
+        pending.forEach(candidate -> candidate.cancel(false));
+        pending.clear();
+    }
+
+    int getAttempts() {
+        return Math.min(attempts.get(), maxAttempts);
+    }
+
+    private void tryNext() {
+        if (result.isDone())
+            return;
+        if (attempts.incrementAndGet() > maxAttempts) {
+            if (running.get() == 0)
+                result.complete(null);
+            return;
+        }
+
+        running.incrementAndGet();
+        final int x = RANDOM.nextInt(range * 2) - range;
+        final int z = RANDOM.nextInt(range * 2) - range;
+        if (SoloServerApi.getInstance().isDebug())
+            SoloServerCore.getInstance().getLogger().info("[Debug] Start Search: " + world.getName() + ", " + x + ", " + z);
+
+        final CompletableFuture<Location> candidate = PaperLib.getChunkAtAsync(world, x >> 4, z >> 4, true)
+                .thenApplyAsync(chunk -> chunk.getChunkSnapshot(true, false, false), MAIN_THREAD)
+                .thenApplyAsync(snapshot -> probe.find(world, snapshot, x, z));
+        pending.add(candidate);
+        candidate.whenComplete((location, throwable) -> {
+            pending.remove(candidate);
+            running.decrementAndGet();
+            if (location != null) {
+                if (result.complete(location))
+                    cancel();
+            } else {
+                if (throwable != null && !candidate.isCancelled())
+                    SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Error!", throwable);
+                tryNext();
+            }
+        });
+    }
+
+    @FunctionalInterface
+    interface Probe {
+
+        /**
+         * @param world    World of the candidate
+         * @param snapshot Snapshot of the chunk containing the candidate, including the height map
+         * @param x        Block x of the candidate
+         * @param z        Block z of the candidate
+         * @return Safe location or null if the candidate is unsafe
+         */
+        Location find(World world, ChunkSnapshot snapshot, int x, int z);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Counts the sleeping players of each world, so that the number of players still awake can be read in constant time.
+ * <p>
+ * Only players counted by {@link AfkManager} are counted here. Sleeping players who have become AFK are kept in
+ * a separate set so that they are not subtracted twice from the active players. All methods must be called from the main thread.
+ */
+public class SleepTracker {
+    private final AfkManager afkManager;
+    // player -> world the player is sleeping in
+    private final Map<UUID, UUID> sleepingPlayers;
+    private final Map<UUID, WorldSleep> worlds;
+
+    public SleepTracker(AfkManager afkManager) {
+        this.afkManager = afkManager;
+        sleepingPlayers = new HashMap<>();
+        worlds = new HashMap<>();
+    }
+
+    /**
+     * Adds the player to the sleeping players. Call this when the player has entered a bed successfully.
+     *
+     * @param player Player who has started sleeping
+     */
+    public void bedEntered(@NotNull Player player) {
+        val uuid = player.getUniqueId();
+        if (!afkManager.isCounted(uuid) || sleepingPlayers.containsKey(uuid))
+            return;
+        val world = player.getWorld().getUID();
+        sleepingPlayers.put(uuid, world);
+        val sleep = getWorldSleep(world);
+        sleep.sleeping.add(uuid);
+        if (afkManager.isAfk(uuid))
+            sleep.sleepingAfk.add(uuid);
+    }
+
+    /**
+     * Removes the player from the sleeping players. Call this when the player leaves the bed, changes the world or quits.
+     *
+     * @param player Player who is no longer sleeping
+     */
+    public void bedLeft(@NotNull Player player) {
+        val uuid = player.getUniqueId();
+        val world = sleepingPlayers.remove(uuid);
+        if (world == null)
+            return;
+        val sleep = getWorldSleep(world);
+        sleep.sleeping.remove(uuid);
+        sleep.sleepingAfk.remove(uuid);
+    }
+
+    /**
+     * Reflects the AFK state change of a sleeping player. Call this from {@link page.nafuchoco.soloservercore.event.player.PlayerAfkStateChangeEvent}.
+     *
+     * @param uuid UUID of the player
+     * @param afk  New state
+     */
+    public void afkChanged(@NotNull UUID uuid, boolean afk) {
+        val world = sleepingPlayers.get(uuid);
+        if (world == null)
+            return;
+        if (afk)
+            getWorldSleep(world).sleepingAfk.add(uuid);
+        else
+            getWorldSleep(world).sleepingAfk.remove(uuid);
+    }
+
+    public boolean isSleeping(@NotNull UUID uuid) {
+        return sleepingPlayers.containsKey(uuid);
+    }
+
+    /**
+     * Returns the number of players in the world who are not sleeping.
+     *
+     * @param world      World
+     * @param excludeAfk Whether AFK players are excluded
+     * @return Number of the players who are awake
+     */
+    public int getAwakeCount(@NotNull World world, boolean excludeAfk) {
+        val sleep = worlds.get(world.getUID());
+        val sleeping = sleep != null ? sleep.sleeping.size() : 0;
+        if (!excludeAfk)
+            return afkManager.getPlayerCount(world) - sleeping;
+        val sleepingAfk = sleep != null ? sleep.sleepingAfk.size() : 0;
+        return afkManager.getActiveCount(world) - (sleeping - sleepingAfk);
+    }
+
+    /**
+     * Records the awake count broadcast to the world and returns whether it differs from the previous broadcast.
+     *
+     * @param world World
+     * @param count Awake count to broadcast
+     * @return true if the count should be broadcast
+     */
+    public boolean updateBroadcastCount(@NotNull World world, int count) {
+        val sleep = getWorldSleep(world.getUID());
+        if (sleep.lastBroadcastCount == count)
+            return false;
+        sleep.lastBroadcastCount = count;
+        return true;
+    }
+
+    /**
+     * Forgets the previous broadcast of the world, so that the next count is broadcast even if it is the same.
+     *
+     * @param world World
+     */
+    public void resetBroadcastCount(@NotNull World world) {
+        getWorldSleep(world.getUID()).lastBroadcastCount = -1;
+    }
+
+    private WorldSleep getWorldSleep(UUID world) {
+        return worlds.computeIfAbsent(world, key -> new WorldSleep());
+    }
+
+    private static class WorldSleep {
+        private final Set<UUID> sleeping = new HashSet<>();
+        private final Set<UUID> sleepingAfk = new HashSet<>();
+        private int lastBroadcastCount = -1;
+    }
+}
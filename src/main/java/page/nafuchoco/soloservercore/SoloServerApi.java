@@ -26,15 +26,18 @@ import page.nafuchoco.soloservercore.database.DatabaseConnector;
 import page.nafuchoco.soloservercore.database.PluginSettingsManager;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 public final class SoloServerApi {
     private final SoloServerCore soloServerCore;
-    private final Map<Player, InGameSSCPlayer> playerStore;
-    private final Map<UUID, PlayersTeam> teamsStore;
+    private final Map<UUID, InGameSSCPlayer> playerStore;
+    private final Map<UUID, Location> spawnStore;
 
     public static SoloServerApi getInstance() {
         return ApiInstanceHolder.INSTANCE;
@@ -42,8 +45,8 @@ public final class SoloServerApi {
 
     private SoloServerApi(SoloServerCore soloServerCore) {
         this.soloServerCore = soloServerCore;
-        playerStore = new HashMap<>();
-        teamsStore = new HashMap<>();
+        playerStore = new ConcurrentHashMap<>();
+        spawnStore = new ConcurrentHashMap<>();
     }
 
     public String getSpawnWorld() {
@@ -68,23 +71,55 @@ public final class SoloServerApi {
 
     /**
      * SoloServerCore固有のオンラインプレイヤーデータを返します。
+     * プレイヤーデータはログイン時に読み込まれるため、このメソッドはデータベースにアクセスせず、どのスレッドからでも呼び出せます。
+     * ログイン処理が完了していない場合は {@link TempSSCPlayer} を返します。
      *
      * @param player プレイヤーデータを取得したいプレイヤー
      * @return SoloServerCore固有のプレイヤーデータクラス
      */
     @NotNull
     public InGameSSCPlayer getSSCPlayer(@NotNull Player player) {
-        var sscPlayer = playerStore.get(player);
-        if (sscPlayer == null) {
-            val id = player.getUniqueId();
-            val offlineSSCPlayer = getOfflineSSCPlayer(id);
-            assert offlineSSCPlayer != null;
-            sscPlayer = new InGameSSCPlayer(offlineSSCPlayer, player, false);
-            playerStore.put(player, sscPlayer);
-        }
+        val sscPlayer = playerStore.get(player.getUniqueId());
+        if (sscPlayer == null || sscPlayer.getPlayer() != player)
+            return new TempSSCPlayer(player);
         return sscPlayer;
     }
 
+    /**
+     * SoloServerCore固有のオンラインプレイヤーデータを返します。
+     * このメソッドはデータベースにアクセスせず、どのスレッドからでも呼び出せます。
+     *
+     * @param uuid プレイヤーデータを取得したいプレイヤーのUUID
+     * @return SoloServerCore固有のプレイヤーデータクラス もしくは オンラインでない場合は null
+     * @since v5.2
+     */
+    @Nullable
+    public InGameSSCPlayer getSSCPlayer(@NotNull UUID uuid) {
+        return playerStore.get(uuid);
+    }
+
+    /**
+     * プレイヤーの移動を記録しているトラッカーを返します。
+     *
+     * @return PlayerActivityTracker
+     * @since v5.2
+     */
+    @NotNull
+    public PlayerActivityTracker getPlayerActivityTracker() {
+        return soloServerCore.getPlayerActivityTracker();
+    }
+
+    /**
+     * プレイヤーのAFK状態を管理しているマネージャーを返します。
+     *
+     * @return AfkManager
+     * @since v5.2
+     */
+    @NotNull
+    public AfkManager getAfkManager() {
+        return soloServerCore.getAfkManager();
+    }
+
     /**
      * SoloServerCore固有のプレイヤーデータを返します。
      *
@@ -93,7 +128,8 @@ public final class SoloServerApi {
      */
     @Nullable
     public OfflineSSCPlayer getOfflineSSCPlayer(@NotNull UUID uuid) {
-        return soloServerCore.getPlayersTable().getPlayerData(uuid);
+        val sscPlayer = soloServerCore.getPlayersTable().getPlayerData(uuid);
+        return sscPlayer != null ? soloServerCore.getPlayersTableWriteBuffer().apply(sscPlayer) : null;
     }
 
     public Location getPlayerSpawn(Player player) {
@@ -102,16 +138,38 @@ public final class SoloServerApi {
 
     public Location getSpawn(UUID uuid) {
         if (soloServerCore.getPluginSettingsManager().isTeamSpawnCollect()) {
-            SSCPlayer sscPlayer = SoloServerApi.getInstance().getOfflineSSCPlayer(uuid);
+            val joinedTeam = soloServerCore.getTeamRegistry().getTeamOf(uuid);
+            if (joinedTeam != null)
+                return getOwnSpawn(joinedTeam.getOwner());
+        }
+        return getOwnSpawn(uuid);
+    }
 
-            if (sscPlayer.getJoinedTeam() != null) {
-                SSCPlayer ownerPlayer = SoloServerApi.getInstance().getOfflineSSCPlayer(sscPlayer.getJoinedTeam().getOwner());
-                return ownerPlayer.getSpawnLocationObject();
-            }
+    /**
+     * プレイヤー自身に割り当てられたスポーン地点を返します。
+     * 一度解決したスポーン地点はキャッシュされ、新しいワールドへの移動時に破棄されます。
+     *
+     * @param uuid プレイヤーのUUID
+     * @return スポーン地点 もしくは null
+     */
+    private Location getOwnSpawn(UUID uuid) {
+        var location = spawnStore.get(uuid);
+        if (location == null) {
+            SSCPlayer sscPlayer = getStoredSSCPlayer(uuid);
+            if (sscPlayer == null)
+                sscPlayer = getOfflineSSCPlayer(uuid);
+            if (sscPlayer == null)
+                return null;
+            location = sscPlayer.getSpawnLocationObject();
+            spawnStore.put(uuid, location);
         }
+        return location.clone();
+    }
 
-        SSCPlayer sscPlayer = SoloServerApi.getInstance().getOfflineSSCPlayer(uuid);
-        return sscPlayer.getSpawnLocationObject();
+    @Nullable
+    private InGameSSCPlayer getStoredSSCPlayer(UUID uuid) {
+        val sscPlayer = playerStore.get(uuid);
+        return sscPlayer instanceof TempSSCPlayer ? null : sscPlayer;
     }
 
     /**
@@ -124,10 +182,8 @@ public final class SoloServerApi {
     @Deprecated
     @Nullable
     public PlayersTeam searchTeamFromOwner(@NotNull UUID owner) {
-        val teamId = soloServerCore.getPlayersTeamsTable().searchTeamFromOwner(owner);
-        if (teamId != null)
-            return getPlayersTeam(teamId);
-        return null;
+        val team = soloServerCore.getTeamRegistry().getTeamOf(owner);
+        return team != null && team.getOwner().equals(owner) ? team : null;
     }
 
     /**
@@ -138,16 +194,54 @@ public final class SoloServerApi {
      */
     @Nullable
     public PlayersTeam getPlayersTeam(@NotNull UUID id) {
-        var playersTeam = teamsStore.get(id);
-        if (playersTeam == null) {
-            playersTeam = soloServerCore.getPlayersTeamsTable().getPlayersTeam(id);
-            if (playersTeam != null) {
-                teamsStore.put(id, playersTeam);
-                // Get Team message data
-                playersTeam.setTeamMessages(soloServerCore.getMessagesTable().getAllMessage(playersTeam));
-            }
+        // チームメッセージは参照された時に読み込まれる
+        return soloServerCore.getTeamRegistry().getTeam(id);
+    }
+
+    /**
+     * 指定したプレイヤーがオーナーまたはメンバーとして所属するPlayersTeamを返します。
+     * オフラインのプレイヤーについてもデータベースへの問い合わせを行わずに取得できます。
+     *
+     * @param player 取得したいプレイヤーのUUID
+     * @return プレイヤーが所属するPlayersTeam もしくは null
+     * @since v5.2
+     */
+    @Nullable
+    public PlayersTeam getJoinedTeam(@NotNull UUID player) {
+        return soloServerCore.getTeamRegistry().getTeamOf(player);
+    }
+
+    /**
+     * チームメッセージの一覧を本文を除いてデータベースから読み込みます。
+     * 通常は {@link PlayersTeam#getMessages()} を使用してください。
+     *
+     * @param teamId チームのID
+     * @return 送信日時の古い順に並べられたチームメッセージ一覧
+     * @since v5.2
+     */
+    @NotNull
+    public List<TeamMessage> loadTeamMessageHeaders(@NotNull UUID teamId) {
+        return soloServerCore.getMessagesTable().getMessageHeaders(teamId);
+    }
+
+    /**
+     * チームメッセージの本文をデータベースから読み込みます。
+     * 通常は {@link TeamMessage#getMessage()} を使用してください。
+     *
+     * @param messageId チームメッセージのID
+     * @return メッセージ本文 もしくは 読み込めなかった場合は空のList
+     * @since v5.2
+     */
+    @NotNull
+    public List<String> loadTeamMessageBody(@NotNull UUID messageId) {
+        try {
+            val body = soloServerCore.getMessagesTable().getMessageBody(messageId);
+            if (body != null)
+                return body;
+        } catch (SQLException e) {
+            soloServerCore.getLogger().log(Level.WARNING, "Failed to get the team message.", e);
         }
-        return playersTeam;
+        return new ArrayList<>();
     }
 
     /**
@@ -171,7 +265,7 @@ public final class SoloServerApi {
      * @return 取得されたプラグイン設定の値
      */
     public String getPluginSetting(@NotNull String key) {
-        return soloServerCore.getPluginSettingsTable().getPluginSetting(key);
+        return soloServerCore.getPluginSettingsManager().getPluginSetting(key);
     }
 
     /**
@@ -184,20 +278,31 @@ public final class SoloServerApi {
     public void setPluginSetting(@NotNull String key, @NotNull String value) throws SQLException {
         if (Arrays.asList(PluginSettingsManager.getSettingsKeys()).contains(key))
             throw new IllegalArgumentException("The settings name used by the system cannot be used.");
-        soloServerCore.getPluginSettingsTable().setPluginSetting(key, value);
+        soloServerCore.getPluginSettingsManager().setPluginSetting(key, value);
     }
 
     void registerSSCPlayer(InGameSSCPlayer sscPlayer) throws SQLException {
         soloServerCore.getPlayersTable().registerPlayer(sscPlayer);
-        playerStore.put(sscPlayer.getPlayer(), sscPlayer);
     }
 
+    // プレイヤーデータのライフサイクル: registerTempPlayer (ログイン) -> storeSSCPlayer (読み込み完了) -> dropStoreData (ログアウト)
+
     void registerTempPlayer(TempSSCPlayer tempSSCPlayer) {
-        playerStore.put(tempSSCPlayer.getPlayer(), tempSSCPlayer);
+        playerStore.put(tempSSCPlayer.getId(), tempSSCPlayer);
+    }
+
+    void storeSSCPlayer(InGameSSCPlayer sscPlayer) {
+        playerStore.put(sscPlayer.getId(), sscPlayer);
     }
 
     void dropStoreData(Player player) {
-        playerStore.remove(player);
+        // 同じUUIDで再ログインしたプレイヤーのデータは削除しない
+        playerStore.computeIfPresent(player.getUniqueId(),
+                (uuid, sscPlayer) -> sscPlayer.getPlayer() == player ? null : sscPlayer);
+    }
+
+    void dropSpawnData(UUID uuid) {
+        spawnStore.remove(uuid);
     }
 
     private static class ApiInstanceHolder {
@@ -34,6 +34,8 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerCommandSendEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
@@ -49,16 +51,25 @@ import page.nafuchoco.soloservercore.listener.*;
 import page.nafuchoco.soloservercore.listener.internal.PlayersTeamEventListener;
 import page.nafuchoco.soloservercore.packet.ServerInfoPacketEventListener;
 
+import java.io.File;
 import java.io.InputStreamReader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 public final class SoloServerCore extends JavaPlugin implements Listener {
+    private static final long PLAYER_DATA_FLUSH_INTERVAL = 100L;
+    private static final long LOGIN_TIMEOUT_MARGIN = 30L;
+    private static final int VISIBILITY_UPDATES_PER_TICK = 200;
+    private static final int CHAT_JOURNAL_CAPACITY = 8192;
+    private static final long TEAM_EVICTION_INTERVAL = 1200L;
+
     private static SoloServerCore instance;
 
     private SoloServerCoreConfig config;
@@ -67,8 +78,26 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
     private PlayersTable playersTable;
     private PlayersTeamsTable playersTeamsTable;
     private MessagesTable messagesTable;
+    private SpawnPointsTable spawnPointsTable;
+    private ChunkClaimsTable chunkClaimsTable;
+    private TeamMembersTable teamMembersTable;
+    private MessageReadCursorsTable messageReadCursorsTable;
+    private PlayersTableWriteBuffer playersTableWriteBuffer;
+    private TeamWriteQueue teamWriteQueue;
 
     private PluginSettingsManager pluginSettingsManager;
+    private SpawnPointStockManager spawnPointStockManager;
+    private PlayerVisibilityManager playerVisibilityManager;
+    private BlockOwnerCache blockOwnerCache;
+    private TeamRegistry teamRegistry;
+    private TeamMemberIndex teamMemberIndex;
+    private ChunkClaimIndex chunkClaimIndex;
+    private PlayerActivityTracker playerActivityTracker;
+    private AfkManager afkManager;
+    private SleepTracker sleepTracker;
+    private CooldownService cooldownService;
+    private ChatRouter chatRouter;
+    private ChatJournal chatJournal;
     private ProtocolManager protocolManager;
     private DatabaseConnector connector;
     private CoreProtectAPI coreProtectAPI;
@@ -106,21 +135,74 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
                 getCoreConfig().getInitConfig().getPassword());
         pluginSettingsTable = new PluginSettingsTable("settings", connector);
         playersTable = new PlayersTable("players", connector);
-        playersTeamsTable = new PlayersTeamsTable("teams", connector);
+        teamMembersTable = new TeamMembersTable("teammembers", connector);
+        playersTeamsTable = new PlayersTeamsTable("teams", connector, teamMembersTable);
         messagesTable = new MessagesTable("messages", connector);
+        spawnPointsTable = new SpawnPointsTable("spawnpoints", connector);
+        chunkClaimsTable = new ChunkClaimsTable("chunkclaims", connector);
+        messageReadCursorsTable = new MessageReadCursorsTable("readcursors", connector);
         try {
             pluginSettingsTable.createTable();
             playersTable.createTable();
             playersTeamsTable.createTable();
+            teamMembersTable.createTable();
             messagesTable.createTable();
+            spawnPointsTable.createTable();
+            chunkClaimsTable.createTable();
+            messageReadCursorsTable.createTable();
         } catch (SQLException e) {
             getInstance().getLogger().log(Level.WARNING, "An error occurred while initializing the database table.", e);
         }
 
         pluginSettingsManager = new PluginSettingsManager(pluginSettingsTable);
+        val settingsReloadInterval = getCoreConfig().getSettingsReloadInterval() * 20L;
+        if (settingsReloadInterval > 0)
+            getServer().getScheduler().runTaskTimerAsynchronously(this, () -> pluginSettingsManager.reload(),
+                    settingsReloadInterval, settingsReloadInterval);
 
         migrateDatabase();
 
+        // Team Registry Init
+        teamWriteQueue = new TeamWriteQueue(connector);
+        teamRegistry = new TeamRegistry(playersTeamsTable, teamWriteQueue);
+        teamRegistry.load();
+        getServer().getScheduler().runTaskTimer(this, () -> teamRegistry.evict(),
+                TEAM_EVICTION_INTERVAL, TEAM_EVICTION_INTERVAL);
+
+        // Player data write buffer Init
+        playersTableWriteBuffer = new PlayersTableWriteBuffer(playersTable);
+        getServer().getScheduler().runTaskTimerAsynchronously(this, () -> playersTableWriteBuffer.flush(),
+                PLAYER_DATA_FLUSH_INTERVAL, PLAYER_DATA_FLUSH_INTERVAL);
+
+        // Spawn point stock Init
+        spawnPointStockManager = new SpawnPointStockManager(spawnPointsTable,
+                pluginSettingsManager,
+                getCoreConfig().getInitConfig().getSpawnWorld());
+        spawnPointStockManager.charge();
+
+        // Visibility Init
+        playerVisibilityManager = new PlayerVisibilityManager(VISIBILITY_UPDATES_PER_TICK);
+        getServer().getScheduler().runTaskTimer(this, () -> playerVisibilityManager.applyPending(), 1L, 1L);
+
+        // Team Index Init
+        teamMemberIndex = new TeamMemberIndex();
+        chatRouter = new ChatRouter();
+
+        // Chat Journal Init
+        chatJournal = new ChatJournal(new File(getDataFolder(), "chatlog"), CHAT_JOURNAL_CAPACITY);
+        getServer().getScheduler().runTaskAsynchronously(this, () -> chatJournal.start());
+        getServer().getScheduler().runTaskTimerAsynchronously(this, () -> chatJournal.drain(), 20L, 20L);
+
+        // Cooldown Init
+        cooldownService = new CooldownService();
+        getServer().getScheduler().runTaskTimer(this, () -> cooldownService.tick(), 20L, 20L);
+
+        // Activity Tracker Init
+        playerActivityTracker = new PlayerActivityTracker();
+        afkManager = new AfkManager(playerActivityTracker, pluginSettingsManager);
+        getServer().getScheduler().runTaskTimer(this, () -> afkManager.tick(), 20L, 20L);
+        sleepTracker = new SleepTracker(afkManager);
+
         // ProtocolLib Init
         try {
             protocolManager = ProtocolLibrary.getProtocolManager();
@@ -132,32 +214,57 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
         // CoreProtect Init
         val coreProtect = (CoreProtect) getServer().getPluginManager().getPlugin("CoreProtect");
         coreProtectAPI = coreProtect.getAPI();
-        if (pluginSettingsManager.isCheckBlock())
-            getServer().getPluginManager().registerEvents(new BlockEventListener(new CoreProtectClient(coreProtectAPI), pluginSettingsManager), this);
-
-        getServer().getPluginManager().registerEvents(new PlayersTeamEventListener(
-                        playersTable,
-                        playersTeamsTable,
-                        pluginSettingsManager,
-                        messagesTable),
-                this);
-        getServer().getPluginManager().registerEvents(new PlayerBedEventListener(pluginSettingsManager), this);
+        if (pluginSettingsManager.isCheckBlock()) {
+            blockOwnerCache = new BlockOwnerCache(new CoreProtectClient(coreProtectAPI), pluginSettingsManager);
+            chunkClaimIndex = new ChunkClaimIndex(chunkClaimsTable, pluginSettingsManager);
+            chunkClaimIndex.start();
+            getServer().getScheduler().runTaskTimerAsynchronously(this, () -> chunkClaimIndex.flush(),
+                    PLAYER_DATA_FLUSH_INTERVAL, PLAYER_DATA_FLUSH_INTERVAL);
+            getServer().getPluginManager().registerEvents(
+                    new BlockEventListener(blockOwnerCache, teamMemberIndex, chunkClaimIndex), this);
+        } else if (pluginSettingsManager.getChunkClaimsSince() > 0) {
+            // 保護が無効な間の設置は記録されないため、次に有効になった時点から記録し直す
+            try {
+                pluginSettingsManager.setChunkClaimsSince(0);
+            } catch (SQLException e) {
+                getLogger().log(Level.WARNING, "Failed to save the chunk claim settings.", e);
+            }
+        }
+
+        val teamInvitations = cooldownService.<UUID>newCooldown();
+        val playersTeamEventListener = new PlayersTeamEventListener(
+                playersTableWriteBuffer,
+                playersTeamsTable,
+                teamWriteQueue,
+                pluginSettingsManager,
+                messagesTable,
+                playerVisibilityManager,
+                teamRegistry,
+                teamMemberIndex,
+                chatRouter,
+                teamInvitations);
+        getServer().getPluginManager().registerEvents(playersTeamEventListener, this);
+        getServer().getPluginManager().registerEvents(new PlayerBedEventListener(pluginSettingsManager, afkManager, sleepTracker, cooldownService), this);
         getServer().getPluginManager().registerEvents(new PlayerRespawnEventListener(), this);
-        getServer().getPluginManager().registerEvents(new AsyncPlayerChatEventListener(), this);
+        getServer().getPluginManager().registerEvents(new AsyncPlayerChatEventListener(chatRouter, chatJournal), this);
         getServer().getPluginManager().registerEvents(new PlayerDeathEventListener(), this);
-        getServer().getPluginManager().registerEvents(new MoveTimeUpdater(), this);
+        getServer().getPluginManager().registerEvents(new MoveTimeUpdater(playerActivityTracker, afkManager), this);
         getServer().getPluginManager().registerEvents(new PeacefulModeEventListener(), this);
         getServer().getPluginManager().registerEvents(this, this);
 
         // Command Register
         val settingsCommand = new SettingsCommand(pluginSettingsManager);
-        val teamCommand = new TeamCommand(pluginSettingsManager);
+        val teamCommand = new TeamCommand(pluginSettingsManager, cooldownService, teamRegistry, teamInvitations);
         val reTeleportCommand = new ReTeleportCommand(
                 pluginSettingsManager,
-                playersTable,
-                Bukkit.getWorld(config.getInitConfig().getSpawnWorld()));
-        val maintenanceCommand = new MaintenanceCommand(playersTable, playersTeamsTable);
-        val messageCommand = new MessageCommand();
+                playersTableWriteBuffer,
+                spawnPointStockManager,
+                Bukkit.getWorld(config.getInitConfig().getSpawnWorld()),
+                cooldownService);
+        val maintenanceCommand = new MaintenanceCommand(playersTable, playersTableWriteBuffer, teamRegistry,
+                playersTeamEventListener);
+        val messageCommand = new MessageCommand(messagesTable, messageReadCursorsTable);
+        val chatLogCommand = new ChatLogCommand(chatJournal);
         getCommand("settings").setExecutor(settingsCommand);
         getCommand("settings").setTabCompleter(settingsCommand);
         getCommand("team").setExecutor(teamCommand);
@@ -167,6 +274,8 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
         getCommand("maintenance").setExecutor(maintenanceCommand);
         getCommand("messageboard").setExecutor(messageCommand);
         getCommand("messageboard").setTabCompleter(messageCommand);
+        getCommand("chatlog").setExecutor(chatLogCommand);
+        getCommand("chatlog").setTabCompleter(chatLogCommand);
     }
 
     private void migrateDatabase() {
@@ -224,9 +333,13 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
                         List<String> scripts = (List<String>) processMap.get("scripts");
                         DatabaseTable databaseTable = switch (database) {
                             case "teams" -> playersTeamsTable;
+                            case "teammembers" -> teamMembersTable;
                             case "players" -> playersTable;
                             case "settings" -> pluginSettingsTable;
                             case "messages" -> messagesTable;
+                            case "spawnpoints" -> spawnPointsTable;
+                            case "chunkclaims" -> chunkClaimsTable;
+                            case "readcursors" -> messageReadCursorsTable;
                             default -> null;
                         };
 
@@ -236,6 +349,7 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
                             try (Connection connection = connector.getConnection();
                                  PreparedStatement ps = connection.prepareStatement(
                                          script.replace("%TABLENAME%", databaseTable.getTablename())
+                                                 .replace("%PREFIX%", getCoreConfig().getInitConfig().getTablePrefix())
                                  )) {
                                 ps.execute();
                             } catch (SQLException e) {
@@ -243,6 +357,15 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
                             }
                         });
                     });
+
+                    // JSONで保存されたチームメンバーはSQLだけでは分割できないため、ここで移行する
+                    if (process == 520) {
+                        try {
+                            playersTeamsTable.copyLegacyMembers();
+                        } catch (SQLException e) {
+                            getLogger().log(Level.WARNING, "An error has occurred during the migration process.", e);
+                        }
+                    }
                 });
 
                 try {
@@ -264,6 +387,16 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
     @Override
     public void onDisable() {
         // Plugin shutdown logic
+        if (spawnPointStockManager != null)
+            spawnPointStockManager.shutdown();
+        if (teamWriteQueue != null)
+            teamWriteQueue.flush();
+        if (playersTableWriteBuffer != null)
+            playersTableWriteBuffer.flush();
+        if (chunkClaimIndex != null)
+            chunkClaimIndex.flush();
+        if (chatJournal != null)
+            chatJournal.close();
         if (connector != null)
             connector.close();
     }
@@ -283,11 +416,40 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
                 sender.sendMessage("CHECK_BLOCK: " + pluginSettingsManager.isCheckBlock());
                 sender.sendMessage("PROTECTION_PERIOD: " + pluginSettingsManager.getProtectionPeriod());
                 sender.sendMessage("TEAM_SPAWN_COLLECT: " + pluginSettingsManager.isTeamSpawnCollect());
+                sender.sendMessage("STOCK_SPAWN_POINT: " + pluginSettingsManager.getStockSpawnPoint());
                 sender.sendMessage("BROADCAST_BED_COUNT: " + pluginSettingsManager.isBroadcastBedCount());
                 sender.sendMessage("USE_AFK_COUNT: " + pluginSettingsManager.isUseAfkCount());
                 sender.sendMessage("AFK_TIME_THRESHOLD: " + pluginSettingsManager.getAfkTimeThreshold());
                 sender.sendMessage("RETELEPORT_RESET_ALL: " + pluginSettingsManager.isReteleportResetAll());
                 sender.sendMessage("LAST_MIGRATED_VERSION: " + pluginSettingsManager.getLastMigratedVersion());
+                sender.sendMessage("");
+                sender.sendMessage("PENDING_PLAYER_DATA: " + playersTableWriteBuffer.getPendingCount());
+                sender.sendMessage("PENDING_VISIBILITY_UPDATES: " + playerVisibilityManager.getPendingCount());
+                sender.sendMessage("PENDING_TEAM_WRITES: " + teamWriteQueue.getPendingCount());
+                sender.sendMessage("CACHED_TEAMS: " + teamRegistry.size()
+                        + " (Hits: " + teamRegistry.getHitCount()
+                        + ", Misses: " + teamRegistry.getMissCount()
+                        + ", Evictions: " + teamRegistry.getEvictionCount() + ")");
+                sender.sendMessage("INDEXED_TEAM_PLAYERS: " + teamRegistry.getIndexedPlayerCount());
+                if (blockOwnerCache != null)
+                    sender.sendMessage("CACHED_BLOCK_OWNERS: " + blockOwnerCache.size());
+                if (chunkClaimIndex != null)
+                    sender.sendMessage("LOADED_CHUNK_CLAIMS: " + chunkClaimIndex.getLoadedChunkCount()
+                            + " (Pending: " + chunkClaimIndex.getPendingCount() + ")");
+                sender.sendMessage("PENDING_CHAT_LOG: " + chatJournal.getPendingCount()
+                        + " (Dropped: " + chatJournal.getDroppedCount() + ")");
+                sender.sendMessage("SPAWN_POINT_STOCK: " + spawnPointStockManager.getStockCount()
+                        + (spawnPointStockManager.isCharging() ? " (Charging...)" : ""));
+                break;
+
+            case "charge":
+                if (spawnPointStockManager.isCharging()) {
+                    sender.sendMessage(ChatColor.YELLOW + "[SSC] Spawn points are already being generated.");
+                } else {
+                    sender.sendMessage(ChatColor.GREEN + "[SSC] Start generating spawn points. This may take some time.");
+                    spawnPointStockManager.charge().thenAccept(generated ->
+                            sender.sendMessage(ChatColor.GREEN + "[SSC] " + generated + " spawn points have been generated."));
+                }
                 break;
 
             case "spawn":
@@ -305,24 +467,16 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
                             var location = player.getBedSpawnLocation();
                             if (location != null) {
                                 SoloServerApi.getInstance().getSSCPlayer(player).setFixedHomeLocation(location);
-                                try {
-                                    getPlayersTable().updateFixedHome(player.getUniqueId(),
-                                            SoloServerApi.getInstance().getSSCPlayer(player).getFixedHomeLocation());
-                                } catch (SQLException e) {
-                                    getLogger().log(Level.WARNING, "Failed to update the player data.", e);
-                                }
+                                playersTableWriteBuffer.updateFixedHome(player.getUniqueId(),
+                                        SoloServerApi.getInstance().getSSCPlayer(player).getFixedHomeLocation());
                                 player.sendMessage(getMessage(player, "command.home.fixed.set"));
                             } else {
                                 player.sendMessage(getMessage(player, "command.home.fixed.set.warn"));
                             }
                         } else if (args[0].equals("reset")) {
                             SoloServerApi.getInstance().getSSCPlayer(player).setFixedHomeLocation(player.getBedSpawnLocation());
-                            try {
-                                getPlayersTable().updateFixedHome(player.getUniqueId(),
-                                        SoloServerApi.getInstance().getSSCPlayer(player).getFixedHomeLocation());
-                            } catch (SQLException e) {
-                                getLogger().log(Level.WARNING, "Failed to update the player data.", e);
-                            }
+                            playersTableWriteBuffer.updateFixedHome(player.getUniqueId(),
+                                    SoloServerApi.getInstance().getSSCPlayer(player).getFixedHomeLocation());
                             player.sendMessage(getMessage(player, "command.home.fixed.reset"));
                         }
                     } else {
@@ -353,128 +507,162 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
     }
 
 
-    private final Map<Player, CompletableFuture<AsyncLoginManager.LoginResult>> loggingInPlayers = new HashMap<>();
+    private final Map<UUID, CompletableFuture<AsyncLoginManager.LoginResult>> loggingInPlayers = new ConcurrentHashMap<>();
 
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerLoginEvent(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED)
+            return;
+
         SoloServerApi.getInstance().registerTempPlayer(new TempSSCPlayer(event.getPlayer()));
-        loggingInPlayers.put(event.getPlayer(), AsyncLoginManager.login(event.getPlayer()));
+        loggingInPlayers.put(event.getPlayer().getUniqueId(), AsyncLoginManager.login(event.getPlayer()));
     }
 
     @EventHandler(priority = EventPriority.HIGH)
     public void onPlayerJoinEvent(PlayerJoinEvent event) {
         event.setJoinMessage("");
 
-        CompletableFuture<AsyncLoginManager.LoginResult> future = loggingInPlayers.remove(event.getPlayer());
-        future.thenAccept(result -> Bukkit.getScheduler().callSyncMethod(this, () -> {
-            if (result.status() == AsyncLoginManager.ResultStatus.FAILED) {
-                event.getPlayer().kickPlayer(result.message());
-                return result;
-            }
+        val player = event.getPlayer();
+        teamMemberIndex.updatePlayerName(player);
+        chatRouter.updatePermission(player);
+        val future = loggingInPlayers.remove(player.getUniqueId());
+        if (future == null) {
+            player.kickPlayer("The login process was interrupted due to a system problem.");
+            return;
+        }
 
-            if (result.status() != AsyncLoginManager.ResultStatus.FIRST_JOINED)
-                SoloServerApi.getInstance().dropStoreData(event.getPlayer());
-
-            val sscPlayer = SoloServerApi.getInstance().getSSCPlayer(event.getPlayer());
-            if (result.status() == AsyncLoginManager.ResultStatus.FIRST_JOINED) {
-                // MVとの競合に対する対策
-                Bukkit.getServer().getScheduler().scheduleSyncDelayedTask(SoloServerCore.getInstance(),
-                        () -> {
-                            val location = sscPlayer.getSpawnLocationObject();
-                            event.getPlayer().teleport(location);
-                            Object[] perms = {event.getPlayer().getName(),
-                                    location.getBlockX(),
-                                    location.getBlockY(),
-                                    location.getBlockZ()};
-                            SoloServerCore.getInstance().getLogger().log(Level.INFO,
-                                    "{0} has been successfully teleported to {1}, {2}, {3}", perms);
-                        }, 10L);
-                event.getPlayer().setCompassTarget(sscPlayer.getSpawnLocationObject());
-            }
+        // スポーン地点の生成を待つ場合があるため、生成のタイムアウトより長く待つ
+        future.orTimeout(getCoreConfig().getInitConfig().getSearchTimeout() + LOGIN_TIMEOUT_MARGIN, TimeUnit.SECONDS)
+                .whenComplete((result, throwable) -> Bukkit.getScheduler().runTask(this, () -> {
+                    if (!player.isOnline())
+                        return;
+
+                    if (throwable != null) {
+                        getLogger().log(Level.WARNING, "Failed to process the login of " + player.getName() + ".", throwable);
+                        player.kickPlayer("The login process was interrupted due to a system problem.");
+                    } else if (result.status() == AsyncLoginManager.ResultStatus.FAILED) {
+                        player.kickPlayer(result.message());
+                    } else {
+                        applyLoginResult(player, result);
+                    }
+                }));
+    }
 
-            val joinedTeam = SoloServerApi.getInstance().getPlayersTeam(event.getPlayer());
-            List<UUID> member;
-            if (joinedTeam != null) {
-                member = new ArrayList<>(joinedTeam.getMembers());
-                member.add(joinedTeam.getOwner());
-            } else {
-                member = new ArrayList<>();
-            }
+    private void applyLoginResult(Player player, AsyncLoginManager.LoginResult result) {
+        val sscPlayer = result.sscPlayer();
+        SoloServerApi.getInstance().storeSSCPlayer(sscPlayer);
+        playerActivityTracker.playerJoined(player);
+        afkManager.playerJoined(player);
+        chatRouter.playerJoined(player, result.joinedTeam());
+
+        if (result.status() == AsyncLoginManager.ResultStatus.FIRST_JOINED) {
+            // MVとの競合に対する対策
+            Bukkit.getServer().getScheduler().scheduleSyncDelayedTask(SoloServerCore.getInstance(),
+                    () -> {
+                        val location = sscPlayer.getSpawnLocationObject();
+                        player.teleport(location);
+                        Object[] perms = {player.getName(),
+                                location.getBlockX(),
+                                location.getBlockY(),
+                                location.getBlockZ()};
+                        SoloServerCore.getInstance().getLogger().log(Level.INFO,
+                                "{0} has been successfully teleported to {1}, {2}, {3}", perms);
+                    }, 10L);
+            player.setCompassTarget(sscPlayer.getSpawnLocationObject());
+        }
 
-            List<Player> players = new ArrayList<>(Bukkit.getOnlinePlayers());
-            players.forEach(player -> {
-                if (!player.equals(event.getPlayer()) && !member.contains(player.getUniqueId())) {
-                    if (!event.getPlayer().hasPermission("soloservercore.invisible.bypass"))
-                        event.getPlayer().hidePlayer(SoloServerCore.getInstance(), player);
-                    player.hidePlayer(SoloServerCore.getInstance(), event.getPlayer());
-                }
-            });
+        val joinedTeam = result.joinedTeam();
+        List<UUID> member;
+        if (joinedTeam != null) {
+            member = new ArrayList<>(joinedTeam.getMembers());
+            member.add(joinedTeam.getOwner());
+        } else {
+            member = new ArrayList<>();
+        }
 
-            if (member.contains(event.getPlayer().getUniqueId()))
-                member.forEach(m -> {
-                    var player = Bukkit.getPlayer(m);
-                    if (player != null && !player.equals(event.getPlayer()))
-                        player.sendMessage(MessageManager.format(getMessage(player, "teams.login"), player.getDisplayName()));
-                });
+        playerVisibilityManager.playerJoined(player);
 
-            if (joinedTeam != null) {
-                val newMessages = joinedTeam.getMessages().stream()
-                        .filter(message -> message.getSentDate().getTime() > event.getPlayer().getLastPlayed()).toList();
-                if (!newMessages.isEmpty()) {
-                    event.getPlayer().sendMessage(ChatColor.AQUA + "====== New Team Message! ======");
-                    newMessages.forEach(message -> {
-                        TextComponent component = new TextComponent();
-                        component.setText("[" + message.getId().toString().split("-")[0] + "] ");
-                        component.setBold(true);
-                        component.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/messageboard read " + message.getId()));
-                        component.addExtra(message.getSubject());
-                        event.getPlayer().spigot().sendMessage(component);
-                    });
-                }
-            }
+        if (member.contains(player.getUniqueId()))
+            member.forEach(m -> {
+                var memberPlayer = Bukkit.getPlayer(m);
+                if (memberPlayer != null && !memberPlayer.equals(player))
+                    memberPlayer.sendMessage(MessageManager.format(getMessage(memberPlayer, "teams.login"), memberPlayer.getDisplayName()));
+            });
 
-            if (!sscPlayer.getSpawnLocationObject().getWorld().getName().equals(SoloServerApi.getInstance().getSpawnWorld()))
-                event.getPlayer().sendMessage(getMessage(event.getPlayer(), "command.teleport.new-world"));
+        if (!result.newMessages().isEmpty()) {
+            player.sendMessage(ChatColor.AQUA + "====== New Team Message! (" + result.unreadCount() + ") ======");
+            result.newMessages().forEach(message -> {
+                TextComponent component = new TextComponent();
+                component.setText("[" + message.getId().toString().split("-")[0] + "] ");
+                component.setBold(true);
+                component.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/messageboard read " + message.getId()));
+                component.addExtra(message.getSubject());
+                player.spigot().sendMessage(component);
+            });
+            if (result.unreadCount() > result.newMessages().size()) {
+                TextComponent component = new TextComponent();
+                component.setText(">> " + (result.unreadCount() - result.newMessages().size()) + " more");
+                component.setColor(net.md_5.bungee.api.ChatColor.AQUA);
+                component.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/messageboard check"));
+                player.spigot().sendMessage(component);
+            }
+        }
 
-            return result;
-        }));
+        if (!sscPlayer.getSpawnBlockLocation().worldName().equals(SoloServerApi.getInstance().getSpawnWorld()))
+            player.sendMessage(getMessage(player, "command.teleport.new-world"));
     }
 
     @EventHandler
     public void onPlayerQuitEvent(PlayerQuitEvent event) {
         event.setQuitMessage("");
 
+        // ログイン処理中に切断した場合は結果を破棄する
+        loggingInPlayers.remove(event.getPlayer().getUniqueId());
         SoloServerApi.getInstance().dropStoreData(event.getPlayer());
-        if (!Bukkit.getOnlinePlayers().isEmpty())
-            Bukkit.getOnlinePlayers().forEach(player -> player.showPlayer(this, event.getPlayer()));
+        val uuid = event.getPlayer().getUniqueId();
+        SoloServerApi.getInstance().dropSpawnData(uuid);
+        getServer().getScheduler().runTaskAsynchronously(this, () -> playersTableWriteBuffer.flush(uuid));
+        playerVisibilityManager.playerQuit(event.getPlayer());
+        playerActivityTracker.playerQuit(event.getPlayer());
+        afkManager.playerQuit(event.getPlayer());
+        chatRouter.playerQuit(event.getPlayer());
     }
 
     public SoloServerCoreConfig getCoreConfig() {
         return config;
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorldEvent(PlayerChangedWorldEvent event) {
+        afkManager.playerChangedWorld(event.getPlayer());
+        // ワールドごとに権限を設定している場合がある
+        chatRouter.updatePermission(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerCommandSendEvent(PlayerCommandSendEvent event) {
+        // 権限が再計算されるとコマンド一覧が再送信されるため、その都度権限を確認し直す
+        chatRouter.updatePermission(event.getPlayer());
+    }
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerMoveToNewWorldEvent(PlayerMoveToNewWorldEvent event) {
-        SoloServerApi.getInstance().dropStoreData(event.getBukkitPlayer());
+        SoloServerApi.getInstance().dropSpawnData(event.getBukkitPlayer().getUniqueId());
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerPeacefulModeChangeEvent(PlayerPeacefulModeChangeEvent event) {
-        try {
-            playersTable.updatePeacefulMode(event.getPlayer().getId(), event.getPlayer().isPeacefulMode());
-            if (event.getPlayer().isPeacefulMode()) {
-                event.getBukkitPlayer().getNearbyEntities(40, 40, 40).forEach(
-                        entity -> {
-                            // 既にターゲット中のMobのターゲットを解除
-                            if (entity instanceof Monster monster
-                                    && monster.getTarget() instanceof Player target
-                                    && target.equals(event.getBukkitPlayer()))
-                                monster.setTarget(null);
-                        }
-                );
-            }
-        } catch (SQLException e) {
-            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the player data.", e);
+        playersTableWriteBuffer.updatePeacefulMode(event.getPlayer().getId(), event.getPlayer().isPeacefulMode());
+        if (event.getPlayer().isPeacefulMode()) {
+            event.getBukkitPlayer().getNearbyEntities(40, 40, 40).forEach(
+                    entity -> {
+                        // 既にターゲット中のMobのターゲットを解除
+                        if (entity instanceof Monster monster
+                                && monster.getTarget() instanceof Player target
+                                && target.equals(event.getBukkitPlayer()))
+                            monster.setTarget(null);
+                    }
+            );
         }
     }
 
@@ -487,10 +675,18 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
         return playersTable;
     }
 
+    PlayersTableWriteBuffer getPlayersTableWriteBuffer() {
+        return playersTableWriteBuffer;
+    }
+
     PlayersTeamsTable getPlayersTeamsTable() {
         return playersTeamsTable;
     }
 
+    TeamRegistry getTeamRegistry() {
+        return teamRegistry;
+    }
+
     PluginSettingsTable getPluginSettingsTable() {
         return pluginSettingsTable;
     }
@@ -498,4 +694,20 @@ public final class SoloServerCore extends JavaPlugin implements Listener {
     MessagesTable getMessagesTable() {
         return messagesTable;
     }
+
+    MessageReadCursorsTable getMessageReadCursorsTable() {
+        return messageReadCursorsTable;
+    }
+
+    SpawnPointStockManager getSpawnPointStockManager() {
+        return spawnPointStockManager;
+    }
+
+    PlayerActivityTracker getPlayerActivityTracker() {
+        return playerActivityTracker;
+    }
+
+    AfkManager getAfkManager() {
+        return afkManager;
+    }
 }
@@ -23,6 +23,7 @@ public class SoloServerCoreConfig {
     private static final SoloServerCore instance = SoloServerCore.getInstance();
     private InitConfig initConfig;
     private boolean debug;
+    private int settingsReloadInterval;
 
     public void reloadConfig() {
         instance.reloadConfig();
@@ -38,8 +39,13 @@ public class SoloServerCoreConfig {
             val tablePrefix = config.getString("initialization.database.tablePrefix");
             val spawnWorlds = config.getString("initialization.spawn.spawnWorld");
             val generateLocationRange = config.getInt("initialization.spawn.generateLocationRange");
-            initConfig = new InitConfig(databaseType, address, port, database, username, password, tablePrefix, spawnWorlds, generateLocationRange);
+            val searchParallelism = config.getInt("initialization.spawn.searchParallelism", 4);
+            val searchMaxAttempts = config.getInt("initialization.spawn.searchMaxAttempts", 64);
+            val searchTimeout = config.getInt("initialization.spawn.searchTimeout", 60);
+            initConfig = new InitConfig(databaseType, address, port, database, username, password, tablePrefix, spawnWorlds,
+                    generateLocationRange, searchParallelism, searchMaxAttempts, searchTimeout);
             debug = config.getBoolean("debug");
+            settingsReloadInterval = config.getInt("settingsReloadInterval", 0);
         }
     }
 
@@ -51,6 +57,10 @@ public class SoloServerCoreConfig {
         return debug;
     }
 
+    public int getSettingsReloadInterval() {
+        return settingsReloadInterval;
+    }
+
     public enum DatabaseType {
         MARIADB("org.mariadb.jdbc.Driver", "jdbc:mariadb://"),
         MYSQL("com.mysql.jdbc.Driver", "jdbc:mysql://");
@@ -75,7 +85,8 @@ public class SoloServerCoreConfig {
     public record InitConfig(DatabaseType databaseType,
                              String address, int port, String database, String username,
                              String password, String tablePrefix, String spawnWorld,
-                             int generateLocationRange) {
+                             int generateLocationRange, int searchParallelism, int searchMaxAttempts,
+                             int searchTimeout) {
 
         public DatabaseType getDatabaseType() {
             return databaseType;
@@ -112,5 +123,17 @@ public class SoloServerCoreConfig {
         public int getGenerateLocationRange() {
             return generateLocationRange;
         }
+
+        public int getSearchParallelism() {
+            return searchParallelism;
+        }
+
+        public int getSearchMaxAttempts() {
+            return searchMaxAttempts;
+        }
+
+        public int getSearchTimeout() {
+            return searchTimeout;
+        }
     }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.database.PluginSettingsManager;
+import page.nafuchoco.soloservercore.database.SpawnPointsTable;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Keeps a stock of pre-generated safe spawn points so that the first login of a player only has to take one out.
+ * The stock is persisted in {@link SpawnPointsTable} and refilled in the background up to <code>stockSpawnPoint</code>.
+ * The number of stocked points is kept in memory and counted again from the database at the start of each charge.
+ */
+public class SpawnPointStockManager {
+    private final SpawnPointsTable spawnPointsTable;
+    private final PluginSettingsManager settingsManager;
+    private final String spawnWorld;
+
+    private final ExecutorService chargeExecutor;
+    private final AtomicBoolean charging;
+    private final AtomicInteger stockCount;
+    private volatile boolean shutdown;
+
+    public SpawnPointStockManager(SpawnPointsTable spawnPointsTable, PluginSettingsManager settingsManager, String spawnWorld) {
+        this.spawnPointsTable = spawnPointsTable;
+        this.settingsManager = settingsManager;
+        this.spawnWorld = spawnWorld;
+        chargeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            val thread = new Thread(runnable, "SoloServerCore-SpawnPointCharger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        charging = new AtomicBoolean();
+        stockCount = new AtomicInteger();
+    }
+
+    /**
+     * Takes out one spawn point from the stock.
+     * If the stock is empty, a new location is generated on the calling thread.
+     * This method must not be called from the main thread.
+     *
+     * @return Safe spawn point or null if it could not be prepared
+     */
+    @Nullable
+    public Location takeSpawnPoint() {
+        Location location = null;
+        val world = Bukkit.getWorld(spawnWorld);
+        if (world != null) {
+            try {
+                location = spawnPointsTable.popSpawnPoint(world);
+                if (location != null)
+                    stockCount.updateAndGet(count -> Math.max(count - 1, 0));
+            } catch (SQLException e) {
+                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to get the spawn point from the stock.", e);
+            }
+        }
+
+        if (location == null) {
+            if (SoloServerApi.getInstance().isDebug())
+                SoloServerCore.getInstance().getLogger().info("[Debug] Spawn point stock is empty, generate new location.");
+            location = AsyncSafeLocationUtil.generateNewRandomLocation();
+        }
+        charge();
+        return location;
+    }
+
+    /**
+     * Generates spawn points in the background until the stock reaches <code>stockSpawnPoint</code>.
+     * If charging is already in progress, it will not be started twice.
+     *
+     * @return Number of spawn points generated by this charge
+     */
+    public CompletableFuture<Integer> charge() {
+        if (shutdown || !charging.compareAndSet(false, true))
+            return CompletableFuture.completedFuture(0);
+
+        return CompletableFuture.supplyAsync(() -> {
+            var generated = 0;
+            try {
+                stockCount.set(spawnPointsTable.countSpawnPoints(spawnWorld));
+                var shortage = settingsManager.getStockSpawnPoint() - stockCount.get();
+                while (shortage > 0 && !shutdown) {
+                    val location = AsyncSafeLocationUtil.generateNewRandomLocation();
+                    if (location == null)
+                        break;
+                    spawnPointsTable.registerSpawnPoint(location);
+                    stockCount.incrementAndGet();
+                    generated++;
+                    shortage--;
+                }
+                if (generated > 0)
+                    SoloServerCore.getInstance().getLogger().log(Level.INFO, "{0} spawn points have been added to the stock.", generated);
+            } catch (SQLException e) {
+                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to save the spawn point.", e);
+            } finally {
+                charging.set(false);
+            }
+            return generated;
+        }, chargeExecutor);
+    }
+
+    /**
+     * Returns the number of stocked spawn points without accessing the database.
+     *
+     * @return Number of spawn points in the stock
+     */
+    public int getStockCount() {
+        return stockCount.get();
+    }
+
+    public boolean isCharging() {
+        return charging.get();
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        chargeExecutor.shutdown();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import page.nafuchoco.soloservercore.data.PlayersTeam;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the names of the owner and the members of each team, so that a player name recorded by CoreProtect
+ * can be matched against a team with a single lookup.
+ * <p>
+ * The name set of a team is built on first use and then kept up to date by the team listeners.
+ * Names are compared in lower case because Minecraft player names are case-insensitive.
+ */
+public class TeamMemberIndex {
+    // player -> last known name in lower case
+    private final Map<UUID, String> playerNames;
+    // team -> names of the owner and the members in lower case
+    private final Map<UUID, Set<String>> teamMemberNames;
+
+    public TeamMemberIndex() {
+        playerNames = new ConcurrentHashMap<>();
+        teamMemberNames = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns whether the player with the name is the owner or a member of the team.
+     *
+     * @param team       Team to check
+     * @param playerName Name of the player
+     * @return true if the player belongs to the team
+     */
+    public boolean isTeamMember(@NotNull PlayersTeam team, @NotNull String playerName) {
+        return getTeamMemberNames(team).contains(playerName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Records the current name of the player who has just joined.
+     * If the player has changed the name, every team that lists the old name is rebuilt on next use.
+     *
+     * @param player Player who has just joined
+     */
+    public void updatePlayerName(@NotNull Player player) {
+        val name = player.getName().toLowerCase(Locale.ROOT);
+        val before = playerNames.put(player.getUniqueId(), name);
+        if (before != null && !before.equals(name))
+            teamMemberNames.values().removeIf(names -> names.contains(before));
+    }
+
+    /**
+     * Adds the player to the name set of the team.
+     *
+     * @param team   Team the player has joined
+     * @param player UUID of the player who has joined
+     */
+    public void memberJoined(@NotNull PlayersTeam team, @NotNull UUID player) {
+        val names = teamMemberNames.get(team.getId());
+        val name = getPlayerName(player);
+        if (names != null && name != null)
+            names.add(name);
+    }
+
+    /**
+     * Removes the player from the name set of the team.
+     *
+     * @param team   Team the player has left
+     * @param player UUID of the player who has left
+     */
+    public void memberLeft(@NotNull PlayersTeam team, @NotNull UUID player) {
+        val names = teamMemberNames.get(team.getId());
+        val name = playerNames.get(player);
+        if (names != null && name != null)
+            names.remove(name);
+    }
+
+    /**
+     * Discards the name set of the team. Call this when the team has disappeared or the owner has changed.
+     *
+     * @param teamId ID of the team
+     */
+    public void invalidateTeam(@NotNull UUID teamId) {
+        teamMemberNames.remove(teamId);
+    }
+
+    private Set<String> getTeamMemberNames(PlayersTeam team) {
+        return teamMemberNames.computeIfAbsent(team.getId(), id -> {
+            Set<String> names = ConcurrentHashMap.newKeySet();
+            val owner = getPlayerName(team.getOwner());
+            if (owner != null)
+                names.add(owner);
+            for (UUID member : team.getMemberSet()) {
+                val name = getPlayerName(member);
+                if (name != null)
+                    names.add(name);
+            }
+            return names;
+        });
+    }
+
+    private String getPlayerName(UUID uuid) {
+        // The name of a player who has not joined since startup is resolved only once.
+        return playerNames.computeIfAbsent(uuid, key -> {
+            val name = Bukkit.getOfflinePlayer(key).getName();
+            return name != null ? name.toLowerCase(Locale.ROOT) : null;
+        });
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.data.PlayersTeam;
+import page.nafuchoco.soloservercore.database.PlayersTeamsTable;
+import page.nafuchoco.soloservercore.database.TeamWriteQueue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Holds the teams in memory together with a reverse index from the owner and the members to their team,
+ * so that the team of a player can be found without querying the database.
+ * <p>
+ * The reverse index covers all teams and is built at startup, while the teams themselves are loaded when they are
+ * looked up. {@link #evict()} removes the teams that have not been used for {@link #IDLE_TIMEOUT}, and the least
+ * recently used ones while more than {@link #MAX_CACHED_TEAMS} are cached. Teams with an online owner or member
+ * are never evicted, so the team held by an online player is always the cached instance. Teams with writes not yet
+ * committed by {@link TeamWriteQueue} are never evicted either, since reloading them would read outdated data.
+ * The registry is kept up to date by the team events.
+ * Lookups can be made from any thread, while all updates must be made from the main thread.
+ */
+public class TeamRegistry {
+    private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+    private static final int MAX_CACHED_TEAMS = 500;
+
+    private final PlayersTeamsTable teamsTable;
+    private final TeamWriteQueue teamWriteQueue;
+    private final Map<UUID, CachedTeam> teams;
+    // owner or member -> team
+    private final Map<UUID, UUID> playerTeams;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private volatile boolean loaded;
+
+    public TeamRegistry(PlayersTeamsTable teamsTable, TeamWriteQueue teamWriteQueue) {
+        this.teamsTable = teamsTable;
+        this.teamWriteQueue = teamWriteQueue;
+        teams = new ConcurrentHashMap<>();
+        playerTeams = new ConcurrentHashMap<>();
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+        evictions = new AtomicLong();
+    }
+
+    /**
+     * Builds the reverse index of all teams. Call this after the database has been migrated.
+     * If loading fails, the team of a player is searched in the database until the next successful load.
+     */
+    public void load() {
+        try {
+            for (PlayersTeam team : teamsTable.getPlayersTeams())
+                index(team);
+            loaded = true;
+        } catch (SQLException e) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to load the teams.", e);
+        }
+    }
+
+    /**
+     * Returns the team.
+     *
+     * @param id ID of the team
+     * @return Team or null if the team does not exist
+     */
+    @Nullable
+    public PlayersTeam getTeam(@NotNull UUID id) {
+        var cached = teams.get(id);
+        if (cached != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            // A team that is not cached but still being written has disappeared and is being deleted.
+            if (teamWriteQueue.hasPendingWrites(id))
+                return null;
+            // Keep a single instance even if the login process loads the same team concurrently.
+            cached = teams.computeIfAbsent(id, key -> {
+                val loadedTeam = teamsTable.getPlayersTeam(key);
+                if (loadedTeam == null)
+                    return null;
+                index(loadedTeam);
+                return new CachedTeam(loadedTeam);
+            });
+            if (cached == null)
+                return null;
+        }
+        cached.lastAccess = System.currentTimeMillis();
+        return cached.team;
+    }
+
+    /**
+     * Returns the team the player owns or is a member of.
+     *
+     * @param player UUID of the player
+     * @return Team or null if the player does not belong to any team
+     */
+    @Nullable
+    public PlayersTeam getTeamOf(@NotNull UUID player) {
+        val teamId = getTeamIdOf(player);
+        return teamId != null ? getTeam(teamId) : null;
+    }
+
+    /**
+     * Returns the ID of the team the player owns or is a member of.
+     *
+     * @param player UUID of the player
+     * @return ID of the team or null if the player does not belong to any team
+     */
+    @Nullable
+    public UUID getTeamIdOf(@NotNull UUID player) {
+        val teamId = playerTeams.get(player);
+        if (teamId != null || loaded)
+            return teamId;
+
+        // The index is incomplete until the teams have been loaded.
+        val ownedTeam = teamsTable.searchTeamFromOwner(player);
+        return ownedTeam != null ? ownedTeam : teamsTable.searchTeamFromMember(player);
+    }
+
+    /**
+     * Removes the teams that are no longer used from the memory. Call this periodically from the main thread.
+     */
+    public void evict() {
+        // Teams with an online owner or member are pinned.
+        val pinned = new HashSet<UUID>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            val teamId = playerTeams.get(player.getUniqueId());
+            if (teamId != null)
+                pinned.add(teamId);
+        }
+
+        val idleSince = System.currentTimeMillis() - IDLE_TIMEOUT;
+        val candidates = new ArrayList<EvictionCandidate>();
+        for (Map.Entry<UUID, CachedTeam> entry : teams.entrySet()) {
+            if (pinned.contains(entry.getKey()) || teamWriteQueue.hasPendingWrites(entry.getKey()))
+                continue;
+            // Lookups from other threads may update the access time while sorting, so it is copied here.
+            val lastAccess = entry.getValue().lastAccess;
+            if (lastAccess < idleSince)
+                remove(entry.getKey(), entry.getValue());
+            else
+                candidates.add(new EvictionCandidate(entry.getKey(), entry.getValue(), lastAccess));
+        }
+
+        var excess = teams.size() - MAX_CACHED_TEAMS;
+        if (excess <= 0)
+            return;
+        candidates.sort(Comparator.comparingLong(EvictionCandidate::lastAccess));
+        for (int i = 0; i < candidates.size() && excess > 0; i++) {
+            val candidate = candidates.get(i);
+            if (remove(candidate.id(), candidate.cached()))
+                excess--;
+        }
+    }
+
+    public int size() {
+        return teams.size();
+    }
+
+    public int getIndexedPlayerCount() {
+        return playerTeams.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Registers the team. Call this when the team has been created.
+     *
+     * @param team Created team
+     */
+    public void teamCreated(@NotNull PlayersTeam team) {
+        teams.put(team.getId(), new CachedTeam(team));
+        index(team);
+    }
+
+    /**
+     * Adds the player to the team. Call this when the player has joined the team.
+     * The join is refused if the team has been disbanded, since an invitation may hold the team after that.
+     *
+     * @param team   Team the player has joined
+     * @param player UUID of the player
+     * @return true if the player has been added, false if the team no longer exists
+     */
+    public boolean memberJoined(@NotNull PlayersTeam team, @NotNull UUID player) {
+        if (getTeam(team.getId()) == null)
+            return false;
+        applyToAllInstances(team, instance -> instance.addMember(player));
+        playerTeams.put(player, team.getId());
+        return true;
+    }
+
+    /**
+     * Removes the player from the team. Call this when the player has left the team.
+     *
+     * @param team   Team the player has left
+     * @param player UUID of the player
+     */
+    public void memberLeft(@NotNull PlayersTeam team, @NotNull UUID player) {
+        applyToAllInstances(team, instance -> instance.removeMember(player));
+        playerTeams.remove(player, team.getId());
+    }
+
+    /**
+     * Makes the member the owner of the team, and the previous owner a member.
+     * Call this when the owner of the team has been transferred.
+     *
+     * @param team     Team whose owner has changed
+     * @param newOwner UUID of the new owner
+     */
+    public void ownerChanged(@NotNull PlayersTeam team, @NotNull UUID newOwner) {
+        val oldOwner = team.getOwner();
+        if (oldOwner.equals(newOwner))
+            return;
+        applyToAllInstances(team, instance -> {
+            instance.setOwner(newOwner);
+            instance.removeMember(newOwner);
+            instance.addMember(oldOwner);
+        });
+        playerTeams.put(newOwner, team.getId());
+        playerTeams.put(oldOwner, team.getId());
+    }
+
+    /**
+     * Removes the team and its members. Call this when the team has disappeared.
+     *
+     * @param team Team that has disappeared
+     */
+    public void teamDisappeared(@NotNull PlayersTeam team) {
+        teams.remove(team.getId());
+        playerTeams.remove(team.getOwner(), team.getId());
+        for (UUID member : team.getMemberSet())
+            playerTeams.remove(member, team.getId());
+    }
+
+    private void index(PlayersTeam team) {
+        playerTeams.put(team.getOwner(), team.getId());
+        for (UUID member : team.getMemberSet())
+            playerTeams.put(member, team.getId());
+    }
+
+    // A team held across an eviction (e.g. by a pending invitation) is a different instance from the cached one,
+    // so the change is applied to both. The changed team is cached again, since it cannot be reloaded
+    // from the database until its write has been committed.
+    private void applyToAllInstances(PlayersTeam team, Consumer<PlayersTeam> change) {
+        change.accept(team);
+        val cached = teams.putIfAbsent(team.getId(), new CachedTeam(team));
+        if (cached != null && cached.team != team)
+            change.accept(cached.team);
+    }
+
+    private boolean remove(UUID id, CachedTeam cached) {
+        if (!teams.remove(id, cached))
+            return false;
+        evictions.incrementAndGet();
+        return true;
+    }
+
+    private static final class CachedTeam {
+        private final PlayersTeam team;
+        private volatile long lastAccess;
+
+        private CachedTeam(PlayersTeam team) {
+            this.team = team;
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    private record EvictionCandidate(UUID id, CachedTeam cached, long lastAccess) {
+    }
+}
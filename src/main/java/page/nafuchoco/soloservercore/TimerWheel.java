@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore;
+
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel with one-second slots, used to expire keys without checking all of them on every tick.
+ * <p>
+ * Each key has at most one deadline. Scheduling a key again replaces its deadline, and the replaced or cancelled
+ * entries are dropped when their slot is reached. Deadlines further away than one turn of the wheel stay in their
+ * slot until the turn they are due. The keys are compared with {@link Object#equals(Object)}.
+ * All methods must be called from the main thread.
+ *
+ * @param <K> Type of the keys
+ */
+final class TimerWheel<K> {
+    private static final int WHEEL_SIZE = 64;
+
+    private final List<List<WheelEntry<K>>> slots;
+    // key -> entry currently scheduled for the key
+    private final Map<K, WheelEntry<K>> scheduled;
+    private final Consumer<K> expired;
+    private long currentTick;
+
+    /**
+     * @param expired Called with each key whose deadline has passed. It may schedule the key again.
+     */
+    TimerWheel(Consumer<K> expired) {
+        this.expired = expired;
+        slots = new ArrayList<>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++)
+            slots.add(new ArrayList<>());
+        scheduled = new HashMap<>();
+    }
+
+    /**
+     * Schedules the key to expire after the delay, replacing its previous deadline.
+     *
+     * @param key   Key to schedule
+     * @param delay Delay in seconds. Delays shorter than one second expire on the next tick.
+     */
+    void schedule(K key, long delay) {
+        val entry = new WheelEntry<>(key, currentTick + Math.max(1, delay));
+        scheduled.put(key, entry);
+        slots.get((int) (entry.deadline() % WHEEL_SIZE)).add(entry);
+    }
+
+    /**
+     * Cancels the deadline of the key.
+     *
+     * @param key Key to cancel
+     */
+    void cancel(K key) {
+        scheduled.remove(key);
+    }
+
+    /**
+     * Advances the wheel by one second and expires the keys whose deadline has passed. Call this every 20 ticks.
+     */
+    void tick() {
+        currentTick++;
+        val index = (int) (currentTick % WHEEL_SIZE);
+        val entries = slots.get(index);
+        if (entries.isEmpty())
+            return;
+        slots.set(index, new ArrayList<>());
+
+        for (WheelEntry<K> entry : entries) {
+            // The key has been rescheduled or cancelled.
+            if (scheduled.get(entry.key()) != entry)
+                continue;
+            if (entry.deadline() > currentTick) {
+                slots.get(index).add(entry);
+                continue;
+            }
+            scheduled.remove(entry.key());
+            expired.accept(entry.key());
+        }
+    }
+
+    private record WheelEntry<K>(K key, long deadline) {
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore.command;
+
+import lombok.val;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.HumanEntity;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.ChatJournal;
+import page.nafuchoco.soloservercore.SoloServerCore;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ChatLogCommand implements CommandExecutor, TabCompleter {
+    private static final int MAX_DAYS = 30;
+    private static final int MAX_LINES = 100;
+    private static final int DEFAULT_LINES = 20;
+
+    private final ChatJournal chatJournal;
+
+    public ChatLogCommand(ChatJournal chatJournal) {
+        this.chatJournal = chatJournal;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+        if (!sender.hasPermission("soloservercore.chatlog")) {
+            sender.sendMessage(ChatColor.RED + "You can't run this command because you don't have permission.");
+            return true;
+        }
+
+        // /chatlog [player|*] [days] [lines]
+        val playerName = args.length >= 1 && !args[0].equals("*") ? args[0] : null;
+        int days;
+        int lines;
+        try {
+            days = args.length >= 2 ? Math.min(Math.max(Integer.parseInt(args[1]), 1), MAX_DAYS) : 1;
+            lines = args.length >= 3 ? Math.min(Math.max(Integer.parseInt(args[2]), 1), MAX_LINES) : DEFAULT_LINES;
+        } catch (NumberFormatException e) {
+            sender.sendMessage(ChatColor.RED + "The number of days and lines must be numbers.");
+            return true;
+        }
+
+        val plugin = SoloServerCore.getInstance();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            val result = chatJournal.search(playerName, days, lines);
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                sender.sendMessage(ChatColor.AQUA + "======== Chat Log ========");
+                if (result.isEmpty())
+                    sender.sendMessage("[SSC] No chat messages were found.");
+                else
+                    result.forEach(sender::sendMessage);
+            });
+        });
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command, @NotNull String alias, @NotNull String[] args) {
+        if (args.length == 1)
+            return Bukkit.getOnlinePlayers().stream()
+                    .map(HumanEntity::getName)
+                    .filter(name -> name.toLowerCase().startsWith(args[0].toLowerCase()))
+                    .collect(Collectors.toList());
+        return List.of();
+    }
+}
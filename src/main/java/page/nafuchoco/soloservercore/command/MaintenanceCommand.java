@@ -27,8 +27,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import page.nafuchoco.soloservercore.SoloServerApi;
 import page.nafuchoco.soloservercore.SoloServerCore;
+import page.nafuchoco.soloservercore.TeamRegistry;
 import page.nafuchoco.soloservercore.database.PlayersTable;
-import page.nafuchoco.soloservercore.database.PlayersTeamsTable;
+import page.nafuchoco.soloservercore.database.PlayersTableWriteBuffer;
+import page.nafuchoco.soloservercore.listener.internal.PlayersTeamEventListener;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -37,11 +39,18 @@ import java.util.logging.Level;
 
 public class MaintenanceCommand implements CommandExecutor, TabCompleter {
     private final PlayersTable playersTable;
-    private final PlayersTeamsTable teamsTable;
+    private final PlayersTableWriteBuffer playersTableWriteBuffer;
+    private final TeamRegistry teamRegistry;
+    private final PlayersTeamEventListener teamEventListener;
 
-    public MaintenanceCommand(PlayersTable playersTable, PlayersTeamsTable teamsTable) {
+    public MaintenanceCommand(PlayersTable playersTable,
+                              PlayersTableWriteBuffer playersTableWriteBuffer,
+                              TeamRegistry teamRegistry,
+                              PlayersTeamEventListener teamEventListener) {
         this.playersTable = playersTable;
-        this.teamsTable = teamsTable;
+        this.playersTableWriteBuffer = playersTableWriteBuffer;
+        this.teamRegistry = teamRegistry;
+        this.teamEventListener = teamEventListener;
     }
 
     @Override
@@ -63,24 +72,16 @@ public class MaintenanceCommand implements CommandExecutor, TabCompleter {
                             targetPlayer.kickPlayer("[SSC] The player data has been deleted by the administrator.");
 
                         // チームに所属している場合は脱退、オーナーの場合はチームの削除
-                        if (target.getJoinedTeam() != null) {
-                            val joinedTeam = soloServerApi.getPlayersTeam(target.getJoinedTeamId());
-                            if (joinedTeam.getOwner().equals(target.getId())) {
-                                teamsTable.deleteTeam(joinedTeam.getId());
-                                joinedTeam.getMembers().forEach(m -> {
-                                            try {
-                                                playersTable.updateJoinedTeam(m, null);
-                                            } catch (SQLException e) {
-                                                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the team data.", e);
-                                            }
-                                        }
-                                );
-                            } else {
-                                val members = joinedTeam.getMembers();
-                                members.remove(playerId);
-                                teamsTable.updateMembers(joinedTeam.getId(), members);
-                            }
+                        // チームへの書き込みはチームイベントと同じキューで順番に行う
+                        val joinedTeam = teamRegistry.getTeamOf(playerId);
+                        if (joinedTeam != null) {
+                            // チームの解散とメンバーの脱退はチームイベントと同じ処理で行う
+                            if (joinedTeam.getOwner().equals(playerId))
+                                teamEventListener.disbandTeam(joinedTeam);
+                            else
+                                teamEventListener.removeMember(joinedTeam, playerId);
                         }
+                        playersTableWriteBuffer.discard(playerId);
                         playersTable.deletePlayer(target);
                         sender.sendMessage(ChatColor.GREEN + "Player data has been deleted.");
                     }
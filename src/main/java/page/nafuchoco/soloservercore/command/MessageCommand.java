@@ -32,11 +32,24 @@ import page.nafuchoco.soloservercore.SoloServerApi;
 import page.nafuchoco.soloservercore.SoloServerCore;
 import page.nafuchoco.soloservercore.data.PlayersTeam;
 import page.nafuchoco.soloservercore.data.TeamMessage;
+import page.nafuchoco.soloservercore.database.MessageReadCursorsTable;
+import page.nafuchoco.soloservercore.database.MessagesTable;
 
+import java.sql.SQLException;
 import java.util.*;
+import java.util.logging.Level;
 
 public class MessageCommand implements CommandExecutor, TabCompleter {
+    private static final int PAGE_SIZE = 10;
+
     private final Map<Player, TeamMessage.TeamMessageBuilder> makingMessage = new HashMap<>();
+    private final MessagesTable messagesTable;
+    private final MessageReadCursorsTable readCursorsTable;
+
+    public MessageCommand(MessagesTable messagesTable, MessageReadCursorsTable readCursorsTable) {
+        this.messagesTable = messagesTable;
+        this.readCursorsTable = readCursorsTable;
+    }
 
     @Override
     public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
@@ -117,6 +130,12 @@ public class MessageCommand implements CommandExecutor, TabCompleter {
                     if (builder != null) {
                         TeamMessage teamMessage = builder.build();
                         SoloServerApi.getInstance().getPlayersTeam(teamMessage.getTargetTeam()).addTeamMessage(teamMessage);
+                        // 自分が送信したメッセージは未読として扱わない
+                        runAsync(player, () -> {
+                            advanceReadCursor(player, teamMessage);
+                            return () -> {
+                            };
+                        });
                         makingMessage.remove(player);
                         player.sendMessage(SoloServerCore.getMessage(player, "command.message.send"));
                     } else {
@@ -127,39 +146,65 @@ public class MessageCommand implements CommandExecutor, TabCompleter {
                 case "check": {
                     PlayersTeam joinedTeam = soloServerApi.getPlayersTeam(player);
                     if (joinedTeam != null) {
-                        List<TeamMessage> messages = joinedTeam.getMessages();
-                        sendMessageList(player, messages);
+                        // 2ページ目以降は前のページの最後のメッセージIDから続きを取得する
+                        UUID cursor = args.length >= 2 ? parseMessageId(args[1]) : null;
+                        runAsync(player, () -> {
+                            TeamMessage before = cursor != null ? messagesTable.getMessageHeader(cursor) : null;
+                            if (before != null && !before.getTargetTeam().equals(joinedTeam.getId()))
+                                before = null;
+                            List<TeamMessage> messages = messagesTable.getMessageHeaders(joinedTeam.getId(), before, PAGE_SIZE + 1);
+                            // 最新のページを表示した時点で、表示したメッセージまでを既読とする
+                            if (before == null && !messages.isEmpty())
+                                advanceReadCursor(player, messages.get(0));
+                            return () -> {
+                                sendMessageList(player, messages.subList(0, Math.min(messages.size(), PAGE_SIZE)));
+                                if (messages.size() > PAGE_SIZE)
+                                    sendNextPage(player, messages.get(PAGE_SIZE - 1));
+                            };
+                        });
                     }
                 }
                 break;
 
                 case "read": {
                     PlayersTeam joinedTeam = soloServerApi.getPlayersTeam(player);
-
-                    TeamMessage message =
-                            joinedTeam.getMessages().stream().
-                                    filter(m -> m.getId().equals(UUID.fromString(args[1])))
-                                    .findFirst().orElse(null);
-                    if (message != null)
-                        sendMessageViewer(player, message);
-                    else
+                    UUID messageId = args.length >= 2 ? parseMessageId(args[1]) : null;
+                    if (joinedTeam != null && messageId != null) {
+                        // 本文は表示する時にのみ読み込む
+                        runAsync(player, () -> {
+                            TeamMessage message = messagesTable.getMessage(messageId);
+                            if (message != null && message.getTargetTeam().equals(joinedTeam.getId()))
+                                advanceReadCursor(player, message);
+                            return () -> {
+                                if (message != null && message.getTargetTeam().equals(joinedTeam.getId()))
+                                    sendMessageViewer(player, message);
+                                else
+                                    player.sendMessage(SoloServerCore.getMessage(player, "command.message.notfound"));
+                            };
+                        });
+                    } else {
                         player.sendMessage(SoloServerCore.getMessage(player, "command.message.notfound"));
+                    }
                 }
                 break;
 
                 case "delete": {
                     PlayersTeam joinedTeam = soloServerApi.getPlayersTeam(player);
-                    TeamMessage message =
-                            joinedTeam.getMessages().stream().
-                                    filter(m -> m.getId().equals(UUID.fromString(args[1])))
-                                    .findFirst().orElse(null);
-                    if (message != null) {
-                        if (message.getSenderPlayer().equals(player.getUniqueId())) {
-                            joinedTeam.deleteTeamMessage(message);
-                            player.sendMessage(SoloServerCore.getMessage(player, "command.message.delete.deleted"));
-                        } else {
-                            player.sendMessage(SoloServerCore.getMessage(player, "command.message.delete.warn"));
-                        }
+                    UUID messageId = args.length >= 2 ? parseMessageId(args[1]) : null;
+                    if (joinedTeam != null && messageId != null) {
+                        runAsync(player, () -> {
+                            TeamMessage message = messagesTable.getMessageHeader(messageId);
+                            return () -> {
+                                if (message == null || !message.getTargetTeam().equals(joinedTeam.getId())) {
+                                    player.sendMessage(SoloServerCore.getMessage(player, "command.message.notfound"));
+                                } else if (message.getSenderPlayer().equals(player.getUniqueId())) {
+                                    joinedTeam.deleteTeamMessage(message);
+                                    player.sendMessage(SoloServerCore.getMessage(player, "command.message.delete.deleted"));
+                                } else {
+                                    player.sendMessage(SoloServerCore.getMessage(player, "command.message.delete.warn"));
+                                }
+                            };
+                        });
                     }
                 }
                 break;
@@ -178,13 +223,14 @@ public class MessageCommand implements CommandExecutor, TabCompleter {
     public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command, @NotNull String alias, @NotNull String[] args) {
         if (args.length == 1) {
             return Arrays.asList("create", "subject", "message", "send", "check", "read", "delete");
-        } else if (args.length >= 2 && (args[0].equals("check") || args[0].equals("delete"))) {
+        } else if (args.length >= 2 && (args[0].equals("read") || args[0].equals("delete"))) {
             List<String> ids = new LinkedList<>();
             if (sender instanceof Player player) {
                 PlayersTeam joinedTeam = SoloServerApi.getInstance().getPlayersTeam(player);
                 if (joinedTeam != null) {
-                    List<TeamMessage> messages = joinedTeam.getMessages();
-                    messages.forEach(message -> ids.add(message.getId().toString()));
+                    // メインスレッドでデータベースを参照しないよう、読み込み済みのメッセージのみを補完する
+                    if (joinedTeam.isMessagesLoaded())
+                        joinedTeam.getMessages().forEach(message -> ids.add(message.getId().toString()));
                     return ids;
                 }
             }
@@ -192,6 +238,42 @@ public class MessageCommand implements CommandExecutor, TabCompleter {
         return null;
     }
 
+    private UUID parseMessageId(String arg) {
+        try {
+            return UUID.fromString(arg);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void runAsync(Player player, MessageQuery query) {
+        val plugin = SoloServerCore.getInstance();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                val result = query.run();
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline())
+                        result.run();
+                });
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to get the team message.", e);
+            }
+        });
+    }
+
+    private void advanceReadCursor(Player player, TeamMessage message) throws SQLException {
+        readCursorsTable.advanceReadCursor(player.getUniqueId(),
+                new MessageReadCursorsTable.ReadCursor(message.getTargetTeam(), message.getSentDate(), message.getId()));
+    }
+
+    private void sendNextPage(Player player, TeamMessage last) {
+        val component = new TextComponent();
+        component.setText(">> Next");
+        component.setColor(net.md_5.bungee.api.ChatColor.AQUA);
+        component.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/messageboard check " + last.getId()));
+        player.spigot().sendMessage(component);
+    }
+
     public void sendMessageEditor(Player player) {
         TeamMessage.TeamMessageBuilder builder = makingMessage.get(player);
         player.sendMessage(ChatColor.AQUA + "====== Message Edit ======");
@@ -227,4 +309,9 @@ public class MessageCommand implements CommandExecutor, TabCompleter {
             });
         }
     }
+
+    @FunctionalInterface
+    private interface MessageQuery {
+        Runnable run() throws SQLException;
+    }
 }
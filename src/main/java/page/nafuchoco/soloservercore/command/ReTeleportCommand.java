@@ -27,31 +27,39 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import page.nafuchoco.soloservercore.AsyncSafeLocationUtil;
+import page.nafuchoco.soloservercore.CooldownService;
 import page.nafuchoco.soloservercore.SoloServerApi;
 import page.nafuchoco.soloservercore.SoloServerCore;
+import page.nafuchoco.soloservercore.SpawnPointStockManager;
 import page.nafuchoco.soloservercore.data.TempSSCPlayer;
-import page.nafuchoco.soloservercore.database.PlayersTable;
+import page.nafuchoco.soloservercore.database.PlayersTableWriteBuffer;
 import page.nafuchoco.soloservercore.database.PluginSettingsManager;
 import page.nafuchoco.soloservercore.event.player.PlayerMoveToNewWorldEvent;
 
-import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 public class ReTeleportCommand implements CommandExecutor, TabCompleter {
     private final PluginSettingsManager settingsManager;
-    private final PlayersTable playersTable;
+    private final PlayersTableWriteBuffer playersTableWriteBuffer;
+    private final SpawnPointStockManager spawnPointStockManager;
+    private static final long CONFIRM_EXPIRY = 60; // seconds
+
     private final World spawnWorld;
-    private final List<Player> waitList;
+    private final CooldownService.Cooldown<Void> waitList;
 
-    public ReTeleportCommand(PluginSettingsManager settingsManager, PlayersTable playersTable, World spawnWorld) {
+    public ReTeleportCommand(PluginSettingsManager settingsManager,
+                             PlayersTableWriteBuffer playersTableWriteBuffer,
+                             SpawnPointStockManager spawnPointStockManager,
+                             World spawnWorld,
+                             CooldownService cooldownService) {
         this.settingsManager = settingsManager;
-        this.playersTable = playersTable;
+        this.playersTableWriteBuffer = playersTableWriteBuffer;
+        this.spawnPointStockManager = spawnPointStockManager;
         this.spawnWorld = spawnWorld;
-        waitList = new ArrayList<>();
+        waitList = cooldownService.newCooldown();
     }
 
     @Override
@@ -62,15 +70,15 @@ public class ReTeleportCommand implements CommandExecutor, TabCompleter {
             } else if (args.length == 0) {
                 val sscPlayer = SoloServerApi.getInstance().getSSCPlayer(player);
                 if (!(sscPlayer instanceof TempSSCPlayer)) {
-                    if (!sscPlayer.getSpawnLocationObject().getWorld().equals(spawnWorld)) {
+                    if (!sscPlayer.getSpawnBlockLocation().isInWorld(spawnWorld)) {
                         sender.sendMessage(SoloServerCore.getMessage(player, "command.teleport.new-world.confirm"));
-                        waitList.add(player);
+                        waitList.start(player.getUniqueId(), CONFIRM_EXPIRY, TimeUnit.SECONDS);
                     } else {
                         sender.sendMessage(SoloServerCore.getMessage(player, "command.teleport.new-world.warn.notfound"));
                     }
                 }
             } else if ("confirm".equalsIgnoreCase(args[0])) {
-                if (waitList.contains(player))
+                if (waitList.remove(player.getUniqueId()))
                     reTeleport(player);
             }
         } else {
@@ -94,20 +102,22 @@ public class ReTeleportCommand implements CommandExecutor, TabCompleter {
             player.sendMessage(SoloServerCore.getMessage(player, "teams.leave"));
         }
 
-        CompletableFuture.supplyAsync(AsyncSafeLocationUtil::generateNewRandomLocation)
+        CompletableFuture.supplyAsync(spawnPointStockManager::takeSpawnPoint)
                 .thenAccept(location -> Bukkit.getScheduler().callSyncMethod(SoloServerCore.getInstance(), () -> {
-                    // イベントの発火
-                    val moveToNewWorldEvent = new PlayerMoveToNewWorldEvent(player, sscPlayer.getSpawnLocationObject().getWorld(), location.getWorld());
-                    Bukkit.getPluginManager().callEvent(moveToNewWorldEvent);
-
-                    // データの上書き
-                    try {
-                        playersTable.updateSpawnLocation(player.getUniqueId(), location);
-                    } catch (SQLException e) {
-                        SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the player data.", e);
+                    if (location == null) {
+                        SoloServerCore.getInstance().getLogger().log(Level.WARNING, "There is no stock of teleport coordinates. Please execute regeneration.");
                         return null;
                     }
 
+                    // データの上書き (イベントの受信側が新しいスポーン地点を参照できるよう先に行う)
+                    val beforeWorld = sscPlayer.getSpawnLocationObject().getWorld();
+                    sscPlayer.setSpawnLocation(location);
+                    playersTableWriteBuffer.updateSpawnLocation(player.getUniqueId(), location);
+
+                    // イベントの発火
+                    val moveToNewWorldEvent = new PlayerMoveToNewWorldEvent(player, beforeWorld, location.getWorld());
+                    Bukkit.getPluginManager().callEvent(moveToNewWorldEvent);
+
                     // 新規座標への移動
                     player.teleport(location);
                     player.setCompassTarget(location);
@@ -16,6 +16,7 @@
 
 package page.nafuchoco.soloservercore.command;
 
+import lombok.val;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -46,15 +47,20 @@ public class SettingsCommand implements CommandExecutor, TabCompleter {
             sender.sendMessage(ChatColor.RED + "You can't run this command because you don't have permission.");
         } else {
             try {
-                if (args.length <= 1) {
+                if (args.length == 1 && "reload".equals(args[0])) {
+                    settingsManager.reload();
+                    sender.sendMessage(ChatColor.GREEN + "[SSC] The plugin settings have been reloaded.");
+                } else if (args.length <= 1) {
+                    val settings = settingsManager.getSettings();
                     sender.sendMessage(ChatColor.AQUA + "======== SoloServerCore Settings ========");
-                    sender.sendMessage("checkBlock: " + settingsManager.isCheckBlock() + "\n" +
-                            "protectionPeriod: " + settingsManager.getProtectionPeriod() + "\n" +
-                            "teamSpawnCollect: " + settingsManager.isTeamSpawnCollect() + "\n" +
-                            "broadcastBedCount: " + settingsManager.isBroadcastBedCount() + "\n" +
-                            "useAfkCount: " + settingsManager.isUseAfkCount() + "\n" +
-                            "afkTimeThreshold: " + settingsManager.getAfkTimeThreshold() + "\n" +
-                            "reteleportResetAll: " + settingsManager.isReteleportResetAll());
+                    sender.sendMessage("checkBlock: " + settings.checkBlock() + "\n" +
+                            "protectionPeriod: " + settings.protectionPeriod() + "\n" +
+                            "teamSpawnCollect: " + settings.teamSpawnCollect() + "\n" +
+                            "stockSpawnPoint: " + settings.stockSpawnPoint() + "\n" +
+                            "broadcastBedCount: " + settings.broadcastBedCount() + "\n" +
+                            "useAfkCount: " + settings.useAfkCount() + "\n" +
+                            "afkTimeThreshold: " + settings.afkTimeThreshold() + "\n" +
+                            "reteleportResetAll: " + settings.reteleportResetAll());
                 } else switch (args[0]) {
                     case "checkBlock" -> {
                         settingsManager.setCheckBlock(Boolean.parseBoolean(args[1]));
@@ -68,6 +74,10 @@ public class SettingsCommand implements CommandExecutor, TabCompleter {
                         settingsManager.setTeamSpawnCollect(Boolean.parseBoolean(args[1]));
                         sender.sendMessage(UPDATED_MESSAGE);
                     }
+                    case "stockSpawnPoint" -> {
+                        settingsManager.setStockSpawnPoint(Integer.parseInt(args[1]));
+                        sender.sendMessage(UPDATED_MESSAGE);
+                    }
                     case "broadcastBedCount" -> {
                         settingsManager.setBroadcastBedCount(Boolean.parseBoolean(args[1]));
                         sender.sendMessage(UPDATED_MESSAGE);
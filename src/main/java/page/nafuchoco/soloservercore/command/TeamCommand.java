@@ -26,9 +26,11 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.CooldownService;
 import page.nafuchoco.soloservercore.MessageManager;
 import page.nafuchoco.soloservercore.SoloServerApi;
 import page.nafuchoco.soloservercore.SoloServerCore;
+import page.nafuchoco.soloservercore.TeamRegistry;
 import page.nafuchoco.soloservercore.data.PlayersTeam;
 import page.nafuchoco.soloservercore.data.TempSSCPlayer;
 import page.nafuchoco.soloservercore.database.PluginSettingsManager;
@@ -37,17 +39,30 @@ import page.nafuchoco.soloservercore.event.team.PlayersTeamStatusUpdateEvent;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class TeamCommand implements CommandExecutor, TabCompleter {
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss:SSS");
 
+    private static final long INVITE_EXPIRY = 5; // minutes
+    private static final long LEAVE_CONFIRM_EXPIRY = 60; // seconds
+
     private final PluginSettingsManager settingsManager;
-    private final Map<UUID, PlayersTeam> invited;
+    private final TeamRegistry teamRegistry;
+    // invited player -> ID of the team
+    private final CooldownService.Cooldown<UUID> invited;
+    // team owner -> team waiting for the confirmation to be disbanded
+    private final CooldownService.Cooldown<UUID> leaveConfirmations;
 
-    public TeamCommand(PluginSettingsManager settingsManager) {
+    public TeamCommand(PluginSettingsManager settingsManager,
+                       CooldownService cooldownService,
+                       TeamRegistry teamRegistry,
+                       CooldownService.Cooldown<UUID> teamInvitations) {
         this.settingsManager = settingsManager;
-        invited = new HashMap<>();
+        this.teamRegistry = teamRegistry;
+        invited = teamInvitations;
+        leaveConfirmations = cooldownService.newCooldown();
     }
 
     @Override
@@ -118,7 +133,7 @@ public class TeamCommand implements CommandExecutor, TabCompleter {
                                         if (target.equals(player)) {
                                             sender.sendMessage(SoloServerCore.getMessage(player, "teams.invite.warn.self"));
                                         } else if (player.getWorld().equals(target.getWorld())) {
-                                            invited.put(target.getUniqueId(), playersTeam);
+                                            invited.start(target.getUniqueId(), INVITE_EXPIRY, TimeUnit.MINUTES, playersTeam.getId());
                                             target.sendMessage(MessageManager.format(SoloServerCore.getMessage(target, "teams.invite.receive"),
                                                     player.getDisplayName()));
                                         } else {
@@ -134,7 +149,9 @@ public class TeamCommand implements CommandExecutor, TabCompleter {
                     break;
 
                 case "accept":
-                    val invitedTeam = invited.remove((player).getUniqueId());
+                    val invitedTeamId = invited.take((player).getUniqueId());
+                    // 招待後に解散されたチームには参加させない
+                    val invitedTeam = invitedTeamId != null ? teamRegistry.getTeam(invitedTeamId) : null;
                     if (invitedTeam != null) {
                         // すでにチームに所属している場合は
                         if (sscPlayer.getJoinedTeam() != null) {
@@ -154,7 +171,7 @@ public class TeamCommand implements CommandExecutor, TabCompleter {
                         if (settingsManager.isTeamSpawnCollect()
                                 && team.getOwner().equals(player.getUniqueId())
                                 && !team.getMembers().isEmpty()) {
-                            invited.put(sscPlayer.getJoinedTeamId(), null);
+                            leaveConfirmations.start(player.getUniqueId(), LEAVE_CONFIRM_EXPIRY, TimeUnit.SECONDS, sscPlayer.getJoinedTeamId());
                             sender.sendMessage(SoloServerCore.getMessage(player, "teams.leave.confirm"));
                         } else {
                             team.leaveTeam(player);
@@ -166,7 +183,8 @@ public class TeamCommand implements CommandExecutor, TabCompleter {
                 break;
 
                 case "confirm": {
-                    if (sscPlayer.getJoinedTeam() != null && invited.remove(sscPlayer.getJoinedTeamId()) != null) {
+                    if (sscPlayer.getJoinedTeam() != null
+                            && sscPlayer.getJoinedTeamId().equals(leaveConfirmations.take(player.getUniqueId()))) {
                         val team = sscPlayer.getJoinedTeam();
                         team.leaveTeam(player);
                         sender.sendMessage(SoloServerCore.getMessage(player, "teams.leave"));
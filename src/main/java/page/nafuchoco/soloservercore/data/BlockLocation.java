@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore.data;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import lombok.val;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * ワールド名とブロック座標で表される不変の座標です。
+ * データベースに保存されるJson形式との変換はこのクラスでのみ行います。
+ *
+ * @param worldName ワールド名
+ * @param x         ブロックのX座標
+ * @param y         ブロックのY座標
+ * @param z         ブロックのZ座標
+ * @since v5.2
+ */
+public record BlockLocation(@NotNull String worldName, int x, int y, int z) {
+    private static final Gson GSON = new Gson();
+
+    /**
+     * LocationオブジェクトからBlockLocationを生成します。
+     *
+     * @param location 変換するLocationオブジェクト
+     * @return BlockLocation
+     */
+    @NotNull
+    public static BlockLocation of(@NotNull Location location) {
+        return new BlockLocation(location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Json形式の座標からBlockLocationを生成します。
+     *
+     * @param json Json形式の座標
+     * @return BlockLocation もしくは null
+     */
+    @Nullable
+    public static BlockLocation fromJson(@Nullable String json) {
+        if (json == null)
+            return null;
+        val locationJson = GSON.fromJson(json, JsonObject.class);
+        if (locationJson == null)
+            return null;
+        return new BlockLocation(locationJson.get("World").getAsString(),
+                (int) Math.floor(locationJson.get("X").getAsDouble()),
+                (int) Math.floor(locationJson.get("Y").getAsDouble()),
+                (int) Math.floor(locationJson.get("Z").getAsDouble()));
+    }
+
+    /**
+     * データベースに保存するJson形式の座標を返します。
+     *
+     * @return Json形式の座標
+     */
+    @NotNull
+    public String toJson() {
+        val locationJson = new JsonObject();
+        locationJson.addProperty("World", worldName);
+        locationJson.addProperty("X", x);
+        locationJson.addProperty("Y", y);
+        locationJson.addProperty("Z", z);
+        return GSON.toJson(locationJson);
+    }
+
+    /**
+     * 座標のワールドを返します。
+     *
+     * @return ワールド もしくは ワールドが読み込まれていない場合は null
+     */
+    @Nullable
+    public World getWorld() {
+        return Bukkit.getWorld(worldName);
+    }
+
+    /**
+     * 指定したワールドの座標であるかを返します。
+     *
+     * @param world 比較するワールド
+     * @return 指定したワールドの座標である場合 true
+     */
+    public boolean isInWorld(@Nullable World world) {
+        return world != null && worldName.equals(world.getName());
+    }
+
+    /**
+     * 新しいLocationオブジェクトを返します。
+     *
+     * @return Locationオブジェクト
+     */
+    @NotNull
+    public Location toLocation() {
+        return new Location(getWorld(), x, y, z);
+    }
+}
@@ -16,14 +16,13 @@
 
 package page.nafuchoco.soloservercore.data;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 import lombok.val;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.PlayerActivityTracker;
 import page.nafuchoco.soloservercore.SoloServerApi;
 import page.nafuchoco.soloservercore.event.player.PlayerPeacefulModeChangeEvent;
 
@@ -31,14 +30,13 @@ import java.util.UUID;
 
 public class InGameSSCPlayer implements SSCPlayer {
     private final UUID id;
-    private final String spawnLocation;
-    private PlayersTeam joinedTeam;
-    private String fixedHomeLocation;
+    private volatile BlockLocation spawnLocation;
+    private volatile PlayersTeam joinedTeam;
+    private volatile BlockLocation fixedHomeLocation;
 
-    private boolean peacefulMode;
+    private volatile boolean peacefulMode;
 
     private final Player player;
-    private long latestMoveTime;
     private final boolean firstJoined;
 
     public InGameSSCPlayer(@NotNull UUID id,
@@ -49,11 +47,11 @@ public class InGameSSCPlayer implements SSCPlayer {
                            @Nullable String fixedHomeLocation,
                            boolean peacefulMode) {
         this.id = id;
-        this.spawnLocation = spawnLocation;
+        this.spawnLocation = BlockLocation.fromJson(spawnLocation);
         this.joinedTeam = (joinedTeamId != null) ? SoloServerApi.getInstance().getPlayersTeam(joinedTeamId) : null;
         this.player = player;
         this.firstJoined = firstJoined;
-        this.fixedHomeLocation = fixedHomeLocation;
+        this.fixedHomeLocation = BlockLocation.fromJson(fixedHomeLocation);
         this.peacefulMode = peacefulMode;
     }
 
@@ -65,24 +63,8 @@ public class InGameSSCPlayer implements SSCPlayer {
                            @Nullable Location fixedHomeLocation,
                            boolean peacefulMode) {
         this.id = id;
-
-        val locationJson = new JsonObject();
-        locationJson.addProperty("World", location.getWorld().getName());
-        locationJson.addProperty("X", location.getBlockX());
-        locationJson.addProperty("Y", location.getBlockY());
-        locationJson.addProperty("Z", location.getBlockZ());
-        this.spawnLocation = new Gson().toJson(locationJson);
-
-        if (fixedHomeLocation != null) {
-            val fixedHomeJson = new JsonObject();
-            fixedHomeJson.addProperty("World", fixedHomeLocation.getWorld().getName());
-            fixedHomeJson.addProperty("X", fixedHomeLocation.getBlockX());
-            fixedHomeJson.addProperty("Y", fixedHomeLocation.getBlockY());
-            fixedHomeJson.addProperty("Z", fixedHomeLocation.getBlockZ());
-            this.fixedHomeLocation = new Gson().toJson(fixedHomeJson);
-        } else {
-            this.fixedHomeLocation = null;
-        }
+        this.spawnLocation = BlockLocation.of(location);
+        this.fixedHomeLocation = (fixedHomeLocation != null) ? BlockLocation.of(fixedHomeLocation) : null;
         this.peacefulMode = peacefulMode;
 
         this.joinedTeam = (joinedTeamId != null) ? SoloServerApi.getInstance().getPlayersTeam(joinedTeamId) : null;
@@ -92,12 +74,12 @@ public class InGameSSCPlayer implements SSCPlayer {
 
     public InGameSSCPlayer(@NotNull OfflineSSCPlayer offlineSSCPlayer, @NotNull Player player, boolean firstJoined) {
         this.id = offlineSSCPlayer.getId();
-        this.spawnLocation = offlineSSCPlayer.getSpawnLocation();
+        this.spawnLocation = offlineSSCPlayer.getSpawnBlockLocation();
         this.joinedTeam = (offlineSSCPlayer.getJoinedTeamId() != null) ?
                 SoloServerApi.getInstance().getPlayersTeam(offlineSSCPlayer.getJoinedTeamId()) : null;
         this.player = player;
         this.firstJoined = firstJoined;
-        this.fixedHomeLocation = offlineSSCPlayer.getFixedHomeLocation();
+        this.fixedHomeLocation = offlineSSCPlayer.getFixedHomeBlockLocation();
         this.peacefulMode = offlineSSCPlayer.isPeacefulMode();
     }
 
@@ -107,7 +89,7 @@ public class InGameSSCPlayer implements SSCPlayer {
     }
 
     @Override
-    public @NotNull String getSpawnLocation() {
+    public @NotNull BlockLocation getSpawnBlockLocation() {
         return spawnLocation;
     }
 
@@ -117,7 +99,7 @@ public class InGameSSCPlayer implements SSCPlayer {
     }
 
     @Override
-    public @Nullable String getFixedHomeLocation() {
+    public @Nullable BlockLocation getFixedHomeBlockLocation() {
         return fixedHomeLocation;
     }
 
@@ -136,32 +118,37 @@ public class InGameSSCPlayer implements SSCPlayer {
         return firstJoined;
     }
 
+    /**
+     * スポーン地点を変更します。
+     * このメソッドはデータベースとの同期を行いません。
+     *
+     * @param spawnLocation 新しいスポーン地点
+     * @since v5.2
+     */
+    public void setSpawnLocation(@NotNull Location spawnLocation) {
+        this.spawnLocation = BlockLocation.of(spawnLocation);
+    }
+
     public void setJoinedTeam(PlayersTeam joinedTeam) { // TODO: 2021/04/07 パブリックにしたくない。
         this.joinedTeam = joinedTeam;
     }
 
     public void setFixedHomeLocation(@Nullable Location fixedHomeLocation) {
-        if (fixedHomeLocation != null) { // TODO: 2021/12/13 イベント化する
-            val fixedHomeJson = new JsonObject();
-            fixedHomeJson.addProperty("World", fixedHomeLocation.getWorld().getName());
-            fixedHomeJson.addProperty("X", fixedHomeLocation.getBlockX());
-            fixedHomeJson.addProperty("Y", fixedHomeLocation.getBlockY());
-            fixedHomeJson.addProperty("Z", fixedHomeLocation.getBlockZ());
-            this.fixedHomeLocation = new Gson().toJson(fixedHomeJson);
-        } else {
-            this.fixedHomeLocation = null;
-        }
+        // TODO: 2021/12/13 イベント化する
+        this.fixedHomeLocation = (fixedHomeLocation != null) ? BlockLocation.of(fixedHomeLocation) : null;
     }
 
     public Player getPlayer() {
         return player;
     }
 
+    /**
+     * プレイヤーが最後に移動したシステム時刻を返します。
+     *
+     * @return エポックミリ秒 もしくは 記録が行われていない場合は 0
+     * @see PlayerActivityTracker#getLatestMoveTime(UUID)
+     */
     public long getLatestMoveTime() {
-        return latestMoveTime;
-    }
-
-    void setLatestMoveTime(long latestMoveTime) {
-        this.latestMoveTime = latestMoveTime;
+        return SoloServerApi.getInstance().getPlayerActivityTracker().getLatestMoveTime(id);
     }
 }
@@ -16,15 +16,20 @@
 
 package page.nafuchoco.soloservercore.data;
 
-import lombok.val;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerMoveEvent;
-import page.nafuchoco.soloservercore.SoloServerApi;
-
-import java.util.Date;
+import page.nafuchoco.soloservercore.AfkManager;
+import page.nafuchoco.soloservercore.PlayerActivityTracker;
 
 public class MoveTimeUpdater implements Listener {
+    private final PlayerActivityTracker activityTracker;
+    private final AfkManager afkManager;
+
+    public MoveTimeUpdater(PlayerActivityTracker activityTracker, AfkManager afkManager) {
+        this.activityTracker = activityTracker;
+        this.afkManager = afkManager;
+    }
 
     @EventHandler(ignoreCancelled = true)
     public void onPlayerMoveEvent(PlayerMoveEvent event) {
@@ -32,11 +37,11 @@ public class MoveTimeUpdater implements Listener {
         if (!(event.getFrom().getBlockX() == event.getTo().getBlockX()
                 && event.getFrom().getBlockZ() == event.getTo().getBlockZ()
                 && event.getFrom().getBlockY() == event.getTo().getBlockY())) {
-            val sscPlayer = SoloServerApi.getInstance().getSSCPlayer(event.getPlayer());
-            if (sscPlayer instanceof TempSSCPlayer)
+            // 記録されていないプレイヤーはログイン処理が完了していない
+            if (!activityTracker.recordMove(event.getPlayer()))
                 event.setCancelled(true);
             else
-                sscPlayer.setLatestMoveTime(new Date().getTime());
+                afkManager.playerMoved(event.getPlayer());
         }
     }
 }
@@ -16,9 +16,6 @@
 
 package page.nafuchoco.soloservercore.data;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import lombok.val;
 import org.bukkit.Location;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -28,9 +25,9 @@ import java.util.UUID;
 
 public class OfflineSSCPlayer implements SSCPlayer {
     private final UUID id;
-    private final String spawnLocation;
+    private final BlockLocation spawnLocation;
     private final PlayersTeam joinedTeam;
-    private final String fixedHomeLocation;
+    private final BlockLocation fixedHomeLocation;
 
     private final boolean peacefulMode;
 
@@ -39,6 +36,14 @@ public class OfflineSSCPlayer implements SSCPlayer {
                             @Nullable UUID joinedTeamId,
                             @Nullable String fixedHomeLocation,
                             boolean peacefulMode) {
+        this(id, BlockLocation.fromJson(spawnLocation), joinedTeamId, BlockLocation.fromJson(fixedHomeLocation), peacefulMode);
+    }
+
+    public OfflineSSCPlayer(@NotNull UUID id,
+                            @NotNull BlockLocation spawnLocation,
+                            @Nullable UUID joinedTeamId,
+                            @Nullable BlockLocation fixedHomeLocation,
+                            boolean peacefulMode) {
         this.id = id;
         this.spawnLocation = spawnLocation;
         this.joinedTeam = (joinedTeamId != null) ? SoloServerApi.getInstance().getPlayersTeam(joinedTeamId) : null;
@@ -51,28 +56,8 @@ public class OfflineSSCPlayer implements SSCPlayer {
                             @Nullable UUID joinedTeamId,
                             @Nullable Location fixedHomeLocation,
                             boolean peacefulMode) {
-        this.id = id;
-        this.joinedTeam = (joinedTeamId != null) ? SoloServerApi.getInstance().getPlayersTeam(joinedTeamId) : null;
-
-        val locationJson = new JsonObject();
-        locationJson.addProperty("World", location.getWorld().getName());
-        locationJson.addProperty("X", location.getBlockX());
-        locationJson.addProperty("Y", location.getBlockY());
-        locationJson.addProperty("Z", location.getBlockZ());
-        this.spawnLocation = new Gson().toJson(locationJson);
-
-        if (fixedHomeLocation != null) {
-            val fixedHomeJson = new JsonObject();
-            fixedHomeJson.addProperty("World", fixedHomeLocation.getWorld().getName());
-            fixedHomeJson.addProperty("X", fixedHomeLocation.getBlockX());
-            fixedHomeJson.addProperty("Y", fixedHomeLocation.getBlockY());
-            fixedHomeJson.addProperty("Z", fixedHomeLocation.getBlockZ());
-            this.fixedHomeLocation = new Gson().toJson(fixedHomeJson);
-        } else {
-            this.fixedHomeLocation = null;
-        }
-
-        this.peacefulMode = peacefulMode;
+        this(id, BlockLocation.of(location), joinedTeamId,
+                fixedHomeLocation != null ? BlockLocation.of(fixedHomeLocation) : null, peacefulMode);
     }
 
     @Override
@@ -81,7 +66,7 @@ public class OfflineSSCPlayer implements SSCPlayer {
     }
 
     @Override
-    public @NotNull String getSpawnLocation() {
+    public @NotNull BlockLocation getSpawnBlockLocation() {
         return spawnLocation;
     }
 
@@ -91,7 +76,7 @@ public class OfflineSSCPlayer implements SSCPlayer {
     }
 
     @Override
-    public @Nullable String getFixedHomeLocation() {
+    public @Nullable BlockLocation getFixedHomeBlockLocation() {
         return fixedHomeLocation;
     }
 
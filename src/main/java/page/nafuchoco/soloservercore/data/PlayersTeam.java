@@ -21,20 +21,21 @@ import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.SoloServerApi;
 import page.nafuchoco.soloservercore.event.team.*;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 public class PlayersTeam {
     private final UUID id;
-    private final UUID owner;
+    private volatile UUID owner;
 
     private String teamName;
-    private List<UUID> members = new ArrayList<>();
+    // 非同期スレッドからも参照されるため、変更の度に変更不可能なSetを作り直して差し替える
+    private volatile Set<UUID> members = Collections.emptySet();
 
-    private List<TeamMessage> messages = new ArrayList<>();
+    // 最初に参照されるまでデータベースから読み込まない
+    private volatile List<TeamMessage> messages;
 
     public PlayersTeam(UUID id, UUID owner) {
         this.id = id;
@@ -72,24 +73,80 @@ public class PlayersTeam {
     }
 
     /**
-     * チームのメンバー一覧を返します。
+     * チームのメンバー一覧を返します。オーナーは含まれません。
+     * 返されるListは呼び出し時点のコピーであり、変更してもチームには反映されません。
      *
      * @return チームのメンバー一覧
      */
     @NotNull
     public List<UUID> getMembers() {
+        return new ArrayList<>(members);
+    }
+
+    /**
+     * チームのメンバーを変更できないSetとして返します。オーナーは含まれません。
+     * 返されるSetは呼び出し時点のものであり、その後のメンバーの変更は反映されません。
+     *
+     * @return チームのメンバー
+     * @since v5.2
+     */
+    @NotNull
+    public Set<UUID> getMemberSet() {
         return members;
     }
 
+    /**
+     * プレイヤーがチームのメンバーであるかを返します。オーナーの場合は false を返します。
+     *
+     * @param player プレイヤーのUUID
+     * @return メンバーである場合 true
+     * @since v5.2
+     */
+    public boolean isMember(@NotNull UUID player) {
+        return members.contains(player);
+    }
+
+    /**
+     * プレイヤーがチームのオーナーまたはメンバーであるかを返します。
+     *
+     * @param player プレイヤーのUUID
+     * @return オーナーまたはメンバーである場合 true
+     * @since v5.2
+     */
+    public boolean isOwnerOrMember(@NotNull UUID player) {
+        return owner.equals(player) || members.contains(player);
+    }
+
     /**
      * 登録されているチームメッセージ一覧を返します。
+     * 一覧は最初の呼び出し時に本文を除いてデータベースから読み込まれます。
      *
      * @return 登録されているチームメッセージ一覧
      * @since v4.5
      */
     @NotNull
     public List<TeamMessage> getMessages() {
-        return messages;
+        var loaded = messages;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = messages;
+                if (loaded == null) {
+                    loaded = SoloServerApi.getInstance().loadTeamMessageHeaders(id);
+                    messages = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * チームメッセージ一覧がデータベースから読み込まれているかを返します。
+     *
+     * @return 読み込まれている場合 true
+     * @since v5.2
+     */
+    public boolean isMessagesLoaded() {
+        return messages != null;
     }
 
     /**
@@ -112,8 +169,46 @@ public class PlayersTeam {
      * 通常は{@link #joinTeam(Player)}, {@link #leaveTeam(Player)}を使用してください。
      */
     @Deprecated
-    public void setMembers(@NotNull List<UUID> members) {
-        this.members = members;
+    public synchronized void setMembers(@NotNull List<UUID> members) {
+        this.members = Collections.unmodifiableSet(new LinkedHashSet<>(members));
+    }
+
+    /**
+     * チームメンバーを追加します。
+     *
+     * @param member 追加するメンバー
+     * @since v5.2
+     * @deprecated このメソッドはデータベースとの同期を行わず、データの不整合が発生する可能性があります。
+     * 通常は{@link #joinTeam(Player)}を使用してください。
+     */
+    @Deprecated
+    public void addMember(@NotNull UUID member) {
+        addMemberInternal(member);
+    }
+
+    /**
+     * チームメンバーを削除します。
+     *
+     * @param member 削除するメンバー
+     * @since v5.2
+     * @deprecated このメソッドはデータベースとの同期を行わず、データの不整合が発生する可能性があります。
+     * 通常は{@link #leaveTeam(Player)}を使用してください。
+     */
+    @Deprecated
+    public void removeMember(@NotNull UUID member) {
+        removeMemberInternal(member);
+    }
+
+    /**
+     * チームのオーナーを設定します。
+     *
+     * @param owner 新しいオーナー
+     * @since v5.2
+     * @deprecated このメソッドはデータベースとの同期を行わず、データの不整合が発生する可能性があります。
+     */
+    @Deprecated
+    public void setOwner(@NotNull UUID owner) {
+        this.owner = owner;
     }
 
     /**
@@ -148,11 +243,11 @@ public class PlayersTeam {
      * @param player 参加させるプレイヤー
      */
     public void joinTeam(Player player) {
-        members.add(player.getUniqueId());
+        addMemberInternal(player.getUniqueId());
         val joinEvent = new PlayersTeamJoinEvent(this, player);
         Bukkit.getServer().getPluginManager().callEvent(joinEvent);
         if (joinEvent.isCancelled())
-            members.remove(player.getUniqueId());
+            removeMemberInternal(player.getUniqueId());
     }
 
     /**
@@ -165,11 +260,11 @@ public class PlayersTeam {
             val disappearanceEvent = new PlayersTeamDisappearanceEvent(this, player);
             Bukkit.getServer().getPluginManager().callEvent(disappearanceEvent);
         } else {
-            members.remove(player.getUniqueId());
+            removeMemberInternal(player.getUniqueId());
             val leaveEvent = new PlayersTeamLeaveEvent(this, player);
             Bukkit.getServer().getPluginManager().callEvent(leaveEvent);
             if (leaveEvent.isCancelled())
-                members.add(player.getUniqueId());
+                addMemberInternal(player.getUniqueId());
         }
     }
 
@@ -180,7 +275,10 @@ public class PlayersTeam {
      * @since v4.5
      */
     public void addTeamMessage(TeamMessage message) {
-        messages.add(message);
+        // 読み込まれていない場合は次に参照された時にデータベースから読み込まれる
+        val loaded = messages;
+        if (loaded != null)
+            loaded.add(message);
         val messageCreateEvent =
                 new PlayersTeamMessageCreateEvent(this, Bukkit.getPlayer(message.getSenderPlayer()), message);
         Bukkit.getServer().getPluginManager().callEvent(messageCreateEvent);
@@ -193,7 +291,9 @@ public class PlayersTeam {
      * @since v4.5
      */
     public void deleteTeamMessage(TeamMessage message) {
-        messages.remove(message);
+        val loaded = messages;
+        if (loaded != null)
+            loaded.remove(message);
         val messageDeleteEvent =
                 new PlayersTeamMessageDeleteEvent(this, Bukkit.getPlayer(message.getSenderPlayer()), message);
         Bukkit.getServer().getPluginManager().callEvent(messageDeleteEvent);
@@ -209,4 +309,20 @@ public class PlayersTeam {
             return false;
         }
     }
+
+    private synchronized void addMemberInternal(UUID member) {
+        if (members.contains(member))
+            return;
+        val updated = new LinkedHashSet<>(members);
+        updated.add(member);
+        members = Collections.unmodifiableSet(updated);
+    }
+
+    private synchronized void removeMemberInternal(UUID member) {
+        if (!members.contains(member))
+            return;
+        val updated = new LinkedHashSet<>(members);
+        updated.remove(member);
+        members = Collections.unmodifiableSet(updated);
+    }
 }
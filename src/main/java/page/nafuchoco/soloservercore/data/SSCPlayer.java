@@ -16,10 +16,6 @@
 
 package page.nafuchoco.soloservercore.data;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import lombok.val;
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -35,12 +31,23 @@ public interface SSCPlayer {
      */
     @NotNull UUID getId();
 
+    /**
+     * プレイヤーに割り当てられたスポーン地点の座標を返します。
+     *
+     * @return プレイヤーに割り当てられたスポーン地点の座標
+     * @since v5.2
+     */
+    @NotNull BlockLocation getSpawnBlockLocation();
+
     /**
      * プレイヤーに割り当てられたスポーン地点の座標をJson形式で返します。
      *
      * @return プレイヤーに割り当てられたスポーン地点の座標Json
      */
-    @NotNull String getSpawnLocation();
+    @NotNull
+    default String getSpawnLocation() {
+        return getSpawnBlockLocation().toJson();
+    }
 
     /**
      * プレイヤーに割り当てられたスポーン地点のLocationオブジェクトを返します。
@@ -49,12 +56,7 @@ public interface SSCPlayer {
      */
     @NotNull
     default Location getSpawnLocationObject() {
-        val locationJson = new Gson().fromJson(getSpawnLocation(), JsonObject.class);
-        val world = locationJson.get("World").getAsString();
-        val x = locationJson.get("X").getAsDouble();
-        val y = locationJson.get("Y").getAsDouble();
-        val z = locationJson.get("Z").getAsDouble();
-        return new Location(Bukkit.getWorld(world), x, y, z);
+        return getSpawnBlockLocation().toLocation();
     }
 
     /**
@@ -74,12 +76,23 @@ public interface SSCPlayer {
         return getJoinedTeam() != null ? getJoinedTeam().getId() : null;
     }
 
+    /**
+     * 固定されたホーム地点の座標を返します。
+     *
+     * @return 固定されたホーム地点の座標 もしくは null
+     * @since v5.2
+     */
+    @Nullable BlockLocation getFixedHomeBlockLocation();
+
     /**
      * 固定されたホーム地点の座標をJson形式で返します。
      *
      * @return 固定されたホーム地点の座標Json
      */
-    @Nullable String getFixedHomeLocation();
+    @Nullable
+    default String getFixedHomeLocation() {
+        return getFixedHomeBlockLocation() != null ? getFixedHomeBlockLocation().toJson() : null;
+    }
 
     /**
      * 固定されたホーム地点のLocationオブジェクトを返します。
@@ -88,15 +101,7 @@ public interface SSCPlayer {
      */
     @Nullable
     default Location getFixedHomeLocationObject() {
-        val locationJson = new Gson().fromJson(getFixedHomeLocation(), JsonObject.class);
-        if (locationJson != null) {
-            val world = locationJson.get("World").getAsString();
-            val x = locationJson.get("X").getAsDouble();
-            val y = locationJson.get("Y").getAsDouble();
-            val z = locationJson.get("Z").getAsDouble();
-            return new Location(Bukkit.getWorld(world), x, y, z);
-        }
-        return null;
+        return getFixedHomeBlockLocation() != null ? getFixedHomeBlockLocation().toLocation() : null;
     }
 
     /**
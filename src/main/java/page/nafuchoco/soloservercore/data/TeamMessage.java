@@ -16,6 +16,10 @@
 
 package page.nafuchoco.soloservercore.data;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.SoloServerApi;
+
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
@@ -27,9 +31,12 @@ public class TeamMessage {
     private final UUID targetTeam;
     private final Date sentDate;
     private final String subject;
-    private final List<String> message;
+    private volatile List<String> message;
 
-    public TeamMessage(UUID id, UUID senderPlayer, UUID targetTeam, Date sentDate, String subject, List<String> message) {
+    /**
+     * @param message メッセージ本文 もしくは 本文を読み込まずに作成する場合は null
+     */
+    public TeamMessage(UUID id, UUID senderPlayer, UUID targetTeam, Date sentDate, String subject, @Nullable List<String> message) {
         this.id = id;
         this.senderPlayer = senderPlayer;
         this.targetTeam = targetTeam;
@@ -58,8 +65,46 @@ public class TeamMessage {
         return subject;
     }
 
+    /**
+     * メッセージ本文を返します。
+     * 本文が読み込まれていない場合はデータベースから読み込むため、可能な場合は非同期で呼び出してください。
+     *
+     * @return メッセージ本文
+     */
+    @NotNull
     public List<String> getMessage() {
-        return message;
+        var body = message;
+        if (body == null) {
+            body = SoloServerApi.getInstance().loadTeamMessageBody(id);
+            message = body;
+        }
+        return body;
+    }
+
+    /**
+     * メッセージ本文が読み込まれているかを返します。
+     *
+     * @return 読み込まれている場合 true
+     * @since v5.2
+     */
+    public boolean isMessageLoaded() {
+        return message != null;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (obj instanceof TeamMessage teamMessage) {
+            return id.equals(teamMessage.id);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
     }
 
     public static class TeamMessageBuilder {
@@ -16,30 +16,17 @@
 
 package page.nafuchoco.soloservercore.data;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import lombok.val;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
 public class TempSSCPlayer extends InGameSSCPlayer {
 
     public TempSSCPlayer(@NotNull Player player) {
-        super(player.getUniqueId(), getDefaultSpawnLocation(player), null, player, false, null, false);
+        super(player.getUniqueId(), player.getWorld().getSpawnLocation(), null, player, false, null, false);
     }
 
     public TempSSCPlayer(@NotNull OfflineSSCPlayer offlineSSCPlayer,
                          @NotNull Player player) {
         super(offlineSSCPlayer, player, false);
     }
-
-    private static String getDefaultSpawnLocation(Player player) {
-        val location = player.getWorld().getSpawnLocation();
-        val locationJson = new JsonObject();
-        locationJson.addProperty("World", location.getWorld().getName());
-        locationJson.addProperty("X", location.getBlockX());
-        locationJson.addProperty("Y", location.getBlockY());
-        locationJson.addProperty("Z", location.getBlockZ());
-        return new Gson().toJson(locationJson);
-    }
 }
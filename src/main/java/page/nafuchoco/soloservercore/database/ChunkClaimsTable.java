@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore.database;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stores the players who have placed blocks in each chunk and the time of their latest placement.
+ */
+public class ChunkClaimsTable extends DatabaseTable {
+
+    public ChunkClaimsTable(String tablename, DatabaseConnector connector) {
+        super(tablename, connector);
+    }
+
+    public void createTable() throws SQLException {
+        super.createTable("world VARCHAR(64) NOT NULL, chunk_x INT NOT NULL, chunk_z INT NOT NULL, " +
+                "player_id VARCHAR(36) NOT NULL, last_placed BIGINT NOT NULL, " +
+                "PRIMARY KEY (world, chunk_x, chunk_z, player_id)");
+    }
+
+    /**
+     * Returns the players who have placed blocks in the chunk.
+     *
+     * @param world  Name of the world
+     * @param chunkX Chunk x
+     * @param chunkZ Chunk z
+     * @return Map of the player UUID and the time of the latest placement in milliseconds
+     * @throws SQLException Thrown when retrieving the claims fails.
+     */
+    @NotNull
+    public Map<UUID, Long> getChunkClaims(@NotNull String world, int chunkX, int chunkZ) throws SQLException {
+        try (var connection = getConnector().getConnection();
+             var ps = connection.prepareStatement(
+                     "SELECT player_id, last_placed FROM " + getTablename() + " WHERE world = ? AND chunk_x = ? AND chunk_z = ?"
+             )) {
+            ps.setString(1, world);
+            ps.setInt(2, chunkX);
+            ps.setInt(3, chunkZ);
+            Map<UUID, Long> claims = new HashMap<>();
+            try (var resultSet = ps.executeQuery()) {
+                while (resultSet.next())
+                    claims.put(UUID.fromString(resultSet.getString("player_id")), resultSet.getLong("last_placed"));
+            }
+            return claims;
+        }
+    }
+
+    /**
+     * Saves the claims in a single batch. The stored time is never moved backwards.
+     *
+     * @param claims Claims to save
+     * @throws SQLException Thrown when saving the claims fails.
+     */
+    public void updateChunkClaims(@NotNull Collection<ChunkClaim> claims) throws SQLException {
+        try (var connection = getConnector().getConnection();
+             var ps = connection.prepareStatement(
+                     "INSERT INTO " + getTablename() + " (world, chunk_x, chunk_z, player_id, last_placed) VALUES (?, ?, ?, ?, ?) " +
+                             "ON DUPLICATE KEY UPDATE last_placed = GREATEST(last_placed, VALUES(last_placed))"
+             )) {
+            for (ChunkClaim claim : claims) {
+                ps.setString(1, claim.world());
+                ps.setInt(2, claim.chunkX());
+                ps.setInt(3, claim.chunkZ());
+                ps.setString(4, claim.player().toString());
+                ps.setLong(5, claim.lastPlaced());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Deletes the claims whose latest placement is older than the specified time.
+     *
+     * @param time Time in milliseconds
+     * @return Number of the deleted claims
+     * @throws SQLException Thrown when deleting the claims fails.
+     */
+    public int deleteChunkClaimsBefore(long time) throws SQLException {
+        try (var connection = getConnector().getConnection();
+             var ps = connection.prepareStatement(
+                     "DELETE FROM " + getTablename() + " WHERE last_placed < ?"
+             )) {
+            ps.setLong(1, time);
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * @param world      Name of the world
+     * @param chunkX     Chunk x
+     * @param chunkZ     Chunk z
+     * @param player     UUID of the player who placed blocks
+     * @param lastPlaced Time of the latest placement in milliseconds
+     */
+    public record ChunkClaim(String world, int chunkX, int chunkZ, UUID player, long lastPlaced) {
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore.database;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Stores the latest team message each player has read, so that unread messages can be read with a range query
+ * on the (target_team, sent_date) index of the messages table.
+ */
+public class MessageReadCursorsTable extends DatabaseTable {
+
+    public MessageReadCursorsTable(String tablename, DatabaseConnector connector) {
+        super(tablename, connector);
+    }
+
+    public void createTable() throws SQLException {
+        super.createTable("player_id VARCHAR(36) PRIMARY KEY, team_id VARCHAR(36) NOT NULL, " +
+                "last_read_date TIMESTAMP NOT NULL, last_read_id VARCHAR(36) NOT NULL");
+    }
+
+    /**
+     * Returns the read cursor of the player.
+     *
+     * @param player UUID of the player
+     * @return Read cursor or null if the player has never read a message
+     * @throws SQLException Thrown when retrieving the cursor fails.
+     */
+    @Nullable
+    public ReadCursor getReadCursor(@NotNull UUID player) throws SQLException {
+        try (var connection = getConnector().getConnection();
+             var ps = connection.prepareStatement(
+                     "SELECT team_id, last_read_date, last_read_id FROM " + getTablename() + " WHERE player_id = ?"
+             )) {
+            ps.setString(1, player.toString());
+            try (var resultSet = ps.executeQuery()) {
+                if (resultSet.next())
+                    return new ReadCursor(UUID.fromString(resultSet.getString("team_id")),
+                            new Date(resultSet.getTimestamp("last_read_date").getTime()),
+                            UUID.fromString(resultSet.getString("last_read_id")));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Moves the read cursor of the player to the message.
+     * The cursor is never moved backwards within the same team, and is replaced when the player has changed the team.
+     *
+     * @param player UUID of the player
+     * @param cursor Message the player has read
+     * @throws SQLException Thrown when saving the cursor fails.
+     */
+    public void advanceReadCursor(@NotNull UUID player, @NotNull ReadCursor cursor) throws SQLException {
+        try (var connection = getConnector().getConnection()) {
+            var sentDate = new Timestamp(cursor.lastReadDate().getTime());
+            int updated;
+            try (var ps = connection.prepareStatement(
+                    "UPDATE " + getTablename() + " SET team_id = ?, last_read_date = ?, last_read_id = ? " +
+                            "WHERE player_id = ? AND (team_id <> ? OR last_read_date < ? " +
+                            "OR (last_read_date = ? AND last_read_id < ?))"
+            )) {
+                ps.setString(1, cursor.teamId().toString());
+                ps.setTimestamp(2, sentDate);
+                ps.setString(3, cursor.lastReadId().toString());
+                ps.setString(4, player.toString());
+                ps.setString(5, cursor.teamId().toString());
+                ps.setTimestamp(6, sentDate);
+                ps.setTimestamp(7, sentDate);
+                ps.setString(8, cursor.lastReadId().toString());
+                updated = ps.executeUpdate();
+            }
+            if (updated > 0)
+                return;
+
+            // The cursor does not exist yet, or is already ahead of the message.
+            try (var ps = connection.prepareStatement(
+                    "INSERT IGNORE INTO " + getTablename() + " (player_id, team_id, last_read_date, last_read_id) VALUES (?, ?, ?, ?)"
+            )) {
+                ps.setString(1, player.toString());
+                ps.setString(2, cursor.teamId().toString());
+                ps.setTimestamp(3, sentDate);
+                ps.setString(4, cursor.lastReadId().toString());
+                ps.execute();
+            }
+        }
+    }
+
+    public void deleteReadCursor(@NotNull UUID player) throws SQLException {
+        try (var connection = getConnector().getConnection();
+             var ps = connection.prepareStatement(
+                     "DELETE FROM " + getTablename() + " WHERE player_id = ?"
+             )) {
+            ps.setString(1, player.toString());
+            ps.execute();
+        }
+    }
+
+    /**
+     * @param teamId       ID of the team the message was sent to
+     * @param lastReadDate Sent date of the latest message read
+     * @param lastReadId   ID of the latest message read
+     */
+    public record ReadCursor(UUID teamId, Date lastReadDate, UUID lastReadId) {
+    }
+}
@@ -18,20 +18,23 @@ package page.nafuchoco.soloservercore.database;
 
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
+import lombok.val;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import page.nafuchoco.soloservercore.SoloServerCore;
-import page.nafuchoco.soloservercore.data.PlayersTeam;
 import page.nafuchoco.soloservercore.data.TeamMessage;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 import java.util.logging.Level;
 
 public class MessagesTable extends DatabaseTable {
     private static final Gson gson = new Gson();
+    private static final String HEADER_COLUMNS = "id, sender_id, target_team, sent_date, subject";
 
     public MessagesTable(String tablename, DatabaseConnector connector) {
         super(tablename, connector);
@@ -39,27 +42,27 @@ public class MessagesTable extends DatabaseTable {
 
     public void createTable() throws SQLException {
         super.createTable("id VARCHAR(36) PRIMARY KEY, sender_id VARCHAR(36) NOT NULL, " +
-                "target_team VARCHAR(36) NOT NULL, sent_date TIMESTAMP, subject TINYTEXT NOT NULL, message LONGTEXT NOT NULL");
+                "target_team VARCHAR(36) NOT NULL, sent_date TIMESTAMP, subject TINYTEXT NOT NULL, message LONGTEXT NOT NULL, " +
+                "INDEX target_team_sent_date (target_team, sent_date)");
     }
 
-    public List<TeamMessage> getAllMessage(PlayersTeam team) {
+    /**
+     * Returns the messages of the team without their bodies, oldest first.
+     * The bodies are loaded by {@link TeamMessage#getMessage()} when they are read.
+     *
+     * @param teamId ID of the team
+     * @return Headers of the messages
+     */
+    public List<TeamMessage> getMessageHeaders(UUID teamId) {
         List<TeamMessage> messages = new ArrayList<>();
         try (Connection connection = getConnector().getConnection();
              PreparedStatement ps = connection.prepareStatement(
-                     "SELECT * FROM " + getTablename() + " WHERE target_team = ?"
+                     "SELECT " + HEADER_COLUMNS + " FROM " + getTablename() + " WHERE target_team = ? ORDER BY sent_date, id"
              )) {
-            ps.setString(1, team.getId().toString());
+            ps.setString(1, teamId.toString());
             try (ResultSet resultSet = ps.executeQuery()) {
-                while (resultSet.next()) {
-                    UUID id = UUID.fromString(resultSet.getString("id"));
-                    UUID senderId = UUID.fromString(resultSet.getString("sender_id"));
-                    Date sentDate = new Date(resultSet.getTimestamp("sent_date").getTime());
-                    String subject = resultSet.getString("subject");
-                    List<String> message = gson.fromJson(resultSet.getString("message"), new TypeToken<List<String>>() {
-                    }.getType());
-                    TeamMessage teamMessage = new TeamMessage(id, senderId, team.getId(), sentDate, subject, message);
-                    messages.add(teamMessage);
-                }
+                while (resultSet.next())
+                    messages.add(readHeader(resultSet));
             }
         } catch (SQLException e) {
             SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to get players team data.", e);
@@ -67,30 +70,134 @@ public class MessagesTable extends DatabaseTable {
         return messages;
     }
 
-    public List<TeamMessage> getNewMessage(PlayersTeam team, Date from) throws SQLException {
+    /**
+     * Returns a page of the messages of the team without their bodies, newest first.
+     * The page is read with a keyset on (target_team, sent_date, id), so deep pages cost the same as the first one.
+     *
+     * @param teamId ID of the team
+     * @param before Last message of the previous page, or null for the first page
+     * @param limit  Maximum number of messages to return
+     * @return Headers of the messages
+     * @throws SQLException Thrown when the query fails
+     */
+    public List<TeamMessage> getMessageHeaders(UUID teamId, @Nullable TeamMessage before, int limit) throws SQLException {
+        val keyset = before != null ? " AND (sent_date < ? OR (sent_date = ? AND id < ?))" : "";
         try (Connection connection = getConnector().getConnection();
              PreparedStatement ps = connection.prepareStatement(
-                     "SELECT * FROM " + getTablename() + " WHERE target_team = ? AND sent_date > ?"
+                     "SELECT " + HEADER_COLUMNS + " FROM " + getTablename() + " WHERE target_team = ?" + keyset +
+                             " ORDER BY sent_date DESC, id DESC LIMIT ?"
              )) {
-            ps.setString(1, team.getId().toString());
-            ps.setTimestamp(2, new Timestamp(from.getTime()));
+            var index = 1;
+            ps.setString(index++, teamId.toString());
+            if (before != null) {
+                val sentDate = new Timestamp(before.getSentDate().getTime());
+                ps.setTimestamp(index++, sentDate);
+                ps.setTimestamp(index++, sentDate);
+                ps.setString(index++, before.getId().toString());
+            }
+            ps.setInt(index, limit);
             try (ResultSet resultSet = ps.executeQuery()) {
                 List<TeamMessage> messages = new ArrayList<>();
-                while (resultSet.next()) {
-                    UUID id = UUID.fromString(resultSet.getString("id"));
-                    UUID senderId = UUID.fromString(resultSet.getString("sender_id"));
-                    Date sentDate = new Date(resultSet.getTimestamp("sent_date").getTime());
-                    String subject = resultSet.getString("subject");
-                    List<String> message = gson.fromJson(resultSet.getString("message"), new TypeToken<List<String>>() {
+                while (resultSet.next())
+                    messages.add(readHeader(resultSet));
+                return messages;
+            }
+        }
+    }
+
+    public TeamMessage getMessageHeader(UUID messageId) throws SQLException {
+        try (Connection connection = getConnector().getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT " + HEADER_COLUMNS + " FROM " + getTablename() + " WHERE id = ?"
+             )) {
+            ps.setString(1, messageId.toString());
+            try (ResultSet resultSet = ps.executeQuery()) {
+                if (resultSet.next())
+                    return readHeader(resultSet);
+            }
+            return null;
+        }
+    }
+
+    public List<String> getMessageBody(UUID messageId) throws SQLException {
+        try (Connection connection = getConnector().getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT message FROM " + getTablename() + " WHERE id = ?"
+             )) {
+            ps.setString(1, messageId.toString());
+            try (ResultSet resultSet = ps.executeQuery()) {
+                if (resultSet.next())
+                    return gson.fromJson(resultSet.getString("message"), new TypeToken<List<String>>() {
                     }.getType());
-                    TeamMessage teamMessage = new TeamMessage(id, senderId, team.getId(), sentDate, subject, message);
-                    messages.add(teamMessage);
-                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns the latest messages of the team sent after the specified message, without their bodies, oldest first.
+     *
+     * @param teamId  ID of the team
+     * @param after   Sent date of the latest message already read
+     * @param afterId ID of the latest message already read, or null to return every message sent after the date
+     * @param limit   Maximum number of messages to return
+     * @return Headers of the messages
+     * @throws SQLException Thrown when the query fails
+     */
+    public List<TeamMessage> getNewMessageHeaders(UUID teamId, Date after, @Nullable UUID afterId, int limit) throws SQLException {
+        try (Connection connection = getConnector().getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT " + HEADER_COLUMNS + " FROM " + getTablename() + " WHERE target_team = ? AND " + afterKeyset(afterId) +
+                             " ORDER BY sent_date DESC, id DESC LIMIT ?"
+             )) {
+            val index = setAfterKeyset(ps, teamId, after, afterId);
+            ps.setInt(index, limit);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                LinkedList<TeamMessage> messages = new LinkedList<>();
+                while (resultSet.next())
+                    messages.addFirst(readHeader(resultSet));
                 return messages;
             }
         }
     }
 
+    /**
+     * Counts the messages of the team sent after the specified message.
+     *
+     * @param teamId  ID of the team
+     * @param after   Sent date of the latest message already read
+     * @param afterId ID of the latest message already read, or null to count every message sent after the date
+     * @return Number of the messages
+     * @throws SQLException Thrown when the query fails
+     */
+    public int countNewMessages(UUID teamId, Date after, @Nullable UUID afterId) throws SQLException {
+        try (Connection connection = getConnector().getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT COUNT(*) FROM " + getTablename() + " WHERE target_team = ? AND " + afterKeyset(afterId)
+             )) {
+            setAfterKeyset(ps, teamId, after, afterId);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : 0;
+            }
+        }
+    }
+
+    private String afterKeyset(UUID afterId) {
+        return afterId != null ? "(sent_date > ? OR (sent_date = ? AND id > ?))" : "sent_date > ?";
+    }
+
+    private int setAfterKeyset(PreparedStatement ps, UUID teamId, Date after, UUID afterId) throws SQLException {
+        var index = 1;
+        val sentDate = new Timestamp(after.getTime());
+        ps.setString(index++, teamId.toString());
+        ps.setTimestamp(index++, sentDate);
+        if (afterId != null) {
+            ps.setTimestamp(index++, sentDate);
+            ps.setString(index++, afterId.toString());
+        }
+        return index;
+    }
+
     public TeamMessage getMessage(UUID messageId) throws SQLException {
         try (Connection connection = getConnector().getConnection();
              PreparedStatement ps = connection.prepareStatement(
@@ -113,11 +220,19 @@ public class MessagesTable extends DatabaseTable {
         }
     }
 
-    public void registerMessage(@NotNull TeamMessage message) throws SQLException {
-        try (Connection connection = getConnector().getConnection();
-             PreparedStatement ps = connection.prepareStatement(
-                     "INSERT INTO " + getTablename() + " (id, sender_id, target_team, sent_date, subject, message) VALUES (?, ?, ?, ?, ?, ?)"
-             )) {
+    private TeamMessage readHeader(ResultSet resultSet) throws SQLException {
+        UUID id = UUID.fromString(resultSet.getString("id"));
+        UUID senderId = UUID.fromString(resultSet.getString("sender_id"));
+        UUID targetTeam = UUID.fromString(resultSet.getString("target_team"));
+        Date sentDate = new Date(resultSet.getTimestamp("sent_date").getTime());
+        String subject = resultSet.getString("subject");
+        return new TeamMessage(id, senderId, targetTeam, sentDate, subject, null);
+    }
+
+    public void registerMessage(@NotNull Connection connection, @NotNull TeamMessage message) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO " + getTablename() + " (id, sender_id, target_team, sent_date, subject, message) VALUES (?, ?, ?, ?, ?, ?)"
+        )) {
             ps.setString(1, message.getId().toString());
             ps.setString(2, message.getSenderPlayer().toString());
             ps.setString(3, message.getTargetTeam().toString());
@@ -128,21 +243,19 @@ public class MessagesTable extends DatabaseTable {
         }
     }
 
-    public void deleteMessage(@NotNull UUID messageId) throws SQLException {
-        try (Connection connection = getConnector().getConnection();
-             PreparedStatement ps = connection.prepareStatement(
-                     "DELETE FROM " + getTablename() + " WHERE id = ?"
-             )) {
+    public void deleteMessage(@NotNull Connection connection, @NotNull UUID messageId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM " + getTablename() + " WHERE id = ?"
+        )) {
             ps.setString(1, messageId.toString());
             ps.execute();
         }
     }
 
-    public void deleteAllMessages(@NotNull UUID teamId) throws SQLException {
-        try (Connection connection = getConnector().getConnection();
-             PreparedStatement ps = connection.prepareStatement(
-                     "DELETE FROM " + getTablename() + " WHERE target_team = ?"
-             )) {
+    public void deleteAllMessages(@NotNull Connection connection, @NotNull UUID teamId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM " + getTablename() + " WHERE target_team = ?"
+        )) {
             ps.setString(1, teamId.toString());
             ps.execute();
         }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore.database;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Changed columns of one row of {@link PlayersTable} that have not been written yet.
+ * Only the columns marked as changed are written.
+ * Instances are immutable, so an update can be read from any thread while a newer one is being queued.
+ */
+public class PlayerDataUpdate {
+    private final UUID id;
+
+    private final String spawnLocation;
+    private final boolean spawnLocationChanged;
+    private final UUID joinedTeam;
+    private final boolean joinedTeamChanged;
+    private final String fixedHome;
+    private final boolean fixedHomeChanged;
+    private final boolean peacefulMode;
+    private final boolean peacefulModeChanged;
+
+    public PlayerDataUpdate(@NotNull UUID id) {
+        this(id, null, false, null, false, null, false, false, false);
+    }
+
+    private PlayerDataUpdate(UUID id,
+                             String spawnLocation, boolean spawnLocationChanged,
+                             UUID joinedTeam, boolean joinedTeamChanged,
+                             String fixedHome, boolean fixedHomeChanged,
+                             boolean peacefulMode, boolean peacefulModeChanged) {
+        this.id = id;
+        this.spawnLocation = spawnLocation;
+        this.spawnLocationChanged = spawnLocationChanged;
+        this.joinedTeam = joinedTeam;
+        this.joinedTeamChanged = joinedTeamChanged;
+        this.fixedHome = fixedHome;
+        this.fixedHomeChanged = fixedHomeChanged;
+        this.peacefulMode = peacefulMode;
+        this.peacefulModeChanged = peacefulModeChanged;
+    }
+
+    @NotNull
+    public UUID getId() {
+        return id;
+    }
+
+    public String getSpawnLocation() {
+        return spawnLocation;
+    }
+
+    public boolean isSpawnLocationChanged() {
+        return spawnLocationChanged;
+    }
+
+    public UUID getJoinedTeam() {
+        return joinedTeam;
+    }
+
+    public boolean isJoinedTeamChanged() {
+        return joinedTeamChanged;
+    }
+
+    public String getFixedHome() {
+        return fixedHome;
+    }
+
+    public boolean isFixedHomeChanged() {
+        return fixedHomeChanged;
+    }
+
+    public boolean isPeacefulMode() {
+        return peacefulMode;
+    }
+
+    public boolean isPeacefulModeChanged() {
+        return peacefulModeChanged;
+    }
+
+    @NotNull
+    public PlayerDataUpdate withSpawnLocation(@NotNull String spawnLocation) {
+        return new PlayerDataUpdate(id, spawnLocation, true, joinedTeam, joinedTeamChanged,
+                fixedHome, fixedHomeChanged, peacefulMode, peacefulModeChanged);
+    }
+
+    @NotNull
+    public PlayerDataUpdate withJoinedTeam(@Nullable UUID joinedTeam) {
+        return new PlayerDataUpdate(id, spawnLocation, spawnLocationChanged, joinedTeam, true,
+                fixedHome, fixedHomeChanged, peacefulMode, peacefulModeChanged);
+    }
+
+    @NotNull
+    public PlayerDataUpdate withFixedHome(@Nullable String fixedHome) {
+        return new PlayerDataUpdate(id, spawnLocation, spawnLocationChanged, joinedTeam, joinedTeamChanged,
+                fixedHome, true, peacefulMode, peacefulModeChanged);
+    }
+
+    @NotNull
+    public PlayerDataUpdate withPeacefulMode(boolean peacefulMode) {
+        return new PlayerDataUpdate(id, spawnLocation, spawnLocationChanged, joinedTeam, joinedTeamChanged,
+                fixedHome, fixedHomeChanged, peacefulMode, true);
+    }
+
+    /**
+     * Returns a copy of this update overwritten with the changed columns of a newer update.
+     *
+     * @param newer Newer update of the same player
+     * @return Merged update
+     */
+    @NotNull
+    public PlayerDataUpdate merge(@NotNull PlayerDataUpdate newer) {
+        var merged = this;
+        if (newer.spawnLocationChanged)
+            merged = merged.withSpawnLocation(newer.spawnLocation);
+        if (newer.joinedTeamChanged)
+            merged = merged.withJoinedTeam(newer.joinedTeam);
+        if (newer.fixedHomeChanged)
+            merged = merged.withFixedHome(newer.fixedHome);
+        if (newer.peacefulModeChanged)
+            merged = merged.withPeacefulMode(newer.peacefulMode);
+        return merged;
+    }
+}
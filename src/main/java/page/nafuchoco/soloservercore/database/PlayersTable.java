@@ -16,18 +16,18 @@
 
 package page.nafuchoco.soloservercore.database;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 import lombok.val;
 import org.bukkit.Location;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import page.nafuchoco.soloservercore.SoloServerCore;
+import page.nafuchoco.soloservercore.data.BlockLocation;
 import page.nafuchoco.soloservercore.data.OfflineSSCPlayer;
 import page.nafuchoco.soloservercore.data.SSCPlayer;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.logging.Level;
@@ -109,12 +109,7 @@ public class PlayersTable extends DatabaseTable {
     }
 
     public void updateSpawnLocation(@NotNull UUID uuid, @NotNull Location location) throws SQLException {
-        val locationJson = new JsonObject();
-        locationJson.addProperty("World", location.getWorld().getName());
-        locationJson.addProperty("X", location.getBlockX());
-        locationJson.addProperty("Y", location.getBlockY());
-        locationJson.addProperty("Z", location.getBlockZ());
-        val stringLocation = new Gson().toJson(locationJson);
+        val stringLocation = BlockLocation.of(location).toJson();
 
         try (var connection = getConnector().getConnection();
              var ps = connection.prepareStatement(
@@ -162,6 +157,61 @@ public class PlayersTable extends DatabaseTable {
         }
     }
 
+    /**
+     * Writes the changed columns of multiple players in one transaction.
+     * Each column is written with its own batched statement.
+     *
+     * @param updates Updates to write
+     * @throws SQLException Thrown when writing the updates fails. Nothing is written in that case.
+     */
+    public void updatePlayers(@NotNull Collection<PlayerDataUpdate> updates) throws SQLException {
+        try (var connection = getConnector().getConnection()) {
+            connection.setAutoCommit(false);
+            try (var spawnLocation = connection.prepareStatement(
+                    "UPDATE " + getTablename() + " SET spawn_location = ? WHERE id = ?");
+                 var joinedTeam = connection.prepareStatement(
+                         "UPDATE " + getTablename() + " SET joined_team = ? WHERE id = ?");
+                 var fixedHome = connection.prepareStatement(
+                         "UPDATE " + getTablename() + " SET fixed_home = ? WHERE id = ?");
+                 var peacefulMode = connection.prepareStatement(
+                         "UPDATE " + getTablename() + " SET peaceful_mode = ? WHERE id = ?")) {
+                for (PlayerDataUpdate update : updates) {
+                    val id = update.getId().toString();
+                    if (update.isSpawnLocationChanged()) {
+                        spawnLocation.setString(1, update.getSpawnLocation());
+                        spawnLocation.setString(2, id);
+                        spawnLocation.addBatch();
+                    }
+                    if (update.isJoinedTeamChanged()) {
+                        joinedTeam.setString(1, update.getJoinedTeam() != null ? update.getJoinedTeam().toString() : null);
+                        joinedTeam.setString(2, id);
+                        joinedTeam.addBatch();
+                    }
+                    if (update.isFixedHomeChanged()) {
+                        fixedHome.setString(1, update.getFixedHome());
+                        fixedHome.setString(2, id);
+                        fixedHome.addBatch();
+                    }
+                    if (update.isPeacefulModeChanged()) {
+                        peacefulMode.setBoolean(1, update.isPeacefulMode());
+                        peacefulMode.setString(2, id);
+                        peacefulMode.addBatch();
+                    }
+                }
+                spawnLocation.executeBatch();
+                joinedTeam.executeBatch();
+                fixedHome.executeBatch();
+                peacefulMode.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
     public void deletePlayer(@NotNull OfflineSSCPlayer sscPlayer) throws SQLException {
         try (var connection = getConnector().getConnection();
              var ps = connection.prepareStatement(
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore.database;
+
+import lombok.val;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.SoloServerCore;
+import page.nafuchoco.soloservercore.data.BlockLocation;
+import page.nafuchoco.soloservercore.data.OfflineSSCPlayer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+
+/**
+ * Buffers updates to {@link PlayersTable} in memory and writes them later in a batch.
+ * Multiple changes to the same player are coalesced into one {@link PlayerDataUpdate}, which is replaced by a merged
+ * copy on each change so that the updates can be read without locking.
+ * Updates can be queued from any thread, while {@link #flush()} should be called off the main thread.
+ */
+public class PlayersTableWriteBuffer {
+    private final PlayersTable playersTable;
+    private final Map<UUID, PlayerDataUpdate> pending;
+    private final Map<UUID, PlayerDataUpdate> inFlight;
+    private final Object flushLock;
+
+    public PlayersTableWriteBuffer(PlayersTable playersTable) {
+        this.playersTable = playersTable;
+        pending = new ConcurrentHashMap<>();
+        inFlight = new ConcurrentHashMap<>();
+        flushLock = new Object();
+    }
+
+    public void updateSpawnLocation(@NotNull UUID uuid, @NotNull Location location) {
+        val stringLocation = BlockLocation.of(location).toJson();
+        update(uuid, update -> update.withSpawnLocation(stringLocation));
+    }
+
+    public void updateJoinedTeam(@NotNull UUID uuid, @Nullable UUID joinedTeam) {
+        update(uuid, update -> update.withJoinedTeam(joinedTeam));
+    }
+
+    public void updateFixedHome(@NotNull UUID uuid, @Nullable String fixedHomeLocation) {
+        update(uuid, update -> update.withFixedHome(fixedHomeLocation));
+    }
+
+    public void updatePeacefulMode(@NotNull UUID uuid, boolean peacefulMode) {
+        update(uuid, update -> update.withPeacefulMode(peacefulMode));
+    }
+
+    /**
+     * Discards the unwritten updates of the player, including the ones being written. Used when the player data
+     * itself is deleted.
+     *
+     * @param uuid Player whose updates are discarded
+     */
+    public void discard(@NotNull UUID uuid) {
+        // Removed from inFlight first so that a failed write being retried cannot put the update back into pending.
+        inFlight.remove(uuid);
+        pending.remove(uuid);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Applies the unwritten updates to the player data read from the database.
+     *
+     * @param sscPlayer Player data read from the database
+     * @return Player data with the unwritten updates applied
+     */
+    @NotNull
+    public OfflineSSCPlayer apply(@NotNull OfflineSSCPlayer sscPlayer) {
+        val flushing = inFlight.get(sscPlayer.getId());
+        val queued = pending.get(sscPlayer.getId());
+        if (flushing == null && queued == null)
+            return sscPlayer;
+
+        PlayerDataUpdate update;
+        if (flushing == null)
+            update = queued;
+        else if (queued == null)
+            update = flushing;
+        else
+            update = flushing.merge(queued);
+        return new OfflineSSCPlayer(sscPlayer.getId(),
+                update.isSpawnLocationChanged() ? update.getSpawnLocation() : sscPlayer.getSpawnLocation(),
+                update.isJoinedTeamChanged() ? update.getJoinedTeam() : sscPlayer.getJoinedTeamId(),
+                update.isFixedHomeChanged() ? update.getFixedHome() : sscPlayer.getFixedHomeLocation(),
+                update.isPeacefulModeChanged() ? update.isPeacefulMode() : sscPlayer.isPeacefulMode());
+    }
+
+    /**
+     * Writes all unwritten updates in a batch.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<PlayerDataUpdate> updates = new ArrayList<>();
+            for (UUID uuid : pending.keySet()) {
+                val update = take(uuid);
+                if (update != null)
+                    updates.add(update);
+            }
+            write(updates);
+        }
+    }
+
+    /**
+     * Writes the unwritten updates of the specified player.
+     *
+     * @param uuid Player whose updates are written
+     */
+    public void flush(@NotNull UUID uuid) {
+        synchronized (flushLock) {
+            val update = take(uuid);
+            if (update != null)
+                write(List.of(update));
+        }
+    }
+
+    // The update is put into inFlight before it leaves pending, so apply() always finds it in one of them.
+    private PlayerDataUpdate take(UUID uuid) {
+        val update = pending.get(uuid);
+        if (update == null)
+            return null;
+        inFlight.put(uuid, update);
+        pending.remove(uuid, update);
+        return update;
+    }
+
+    private void update(UUID uuid, UnaryOperator<PlayerDataUpdate> change) {
+        pending.compute(uuid, (key, update) -> change.apply(update != null ? update : new PlayerDataUpdate(key)));
+    }
+
+    private void write(List<PlayerDataUpdate> updates) {
+        if (updates.isEmpty())
+            return;
+        try {
+            playersTable.updatePlayers(updates);
+        } catch (SQLException e) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the player data. It will be retried later.", e);
+            // Keep the failed updates unless newer ones have been queued. Updates discarded while writing are dropped.
+            updates.forEach(update -> inFlight.computeIfPresent(update.getId(), (uuid, flushing) -> {
+                if (flushing == update)
+                    pending.merge(uuid, update, (newer, failed) -> failed.merge(newer));
+                return flushing;
+            }));
+        } finally {
+            updates.forEach(update -> inFlight.remove(update.getId()));
+        }
+    }
+}
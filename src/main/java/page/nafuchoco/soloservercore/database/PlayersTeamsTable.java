@@ -18,15 +18,15 @@ package page.nafuchoco.soloservercore.database;
 
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import lombok.val;
-import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import page.nafuchoco.soloservercore.SoloServerCore;
 import page.nafuchoco.soloservercore.data.PlayersTeam;
 
+import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.SQLSyntaxErrorException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -35,10 +35,15 @@ import java.util.logging.Level;
 public class PlayersTeamsTable extends DatabaseTable {
     private static final Gson gson = new Gson();
 
-    public PlayersTeamsTable(String tablename, DatabaseConnector connector) {
+    private final TeamMembersTable membersTable;
+
+    public PlayersTeamsTable(String tablename, DatabaseConnector connector, TeamMembersTable membersTable) {
         super(tablename, connector);
+        this.membersTable = membersTable;
     }
 
+    // members is no longer written since the members are stored in TeamMembersTable.
+    // The column is kept so that the data before the migration is not lost.
     public void createTable() throws SQLException {
         super.createTable("id VARCHAR(36) PRIMARY KEY, team_name VARCHAR(16), owner VARCHAR(36) NOT NULL, members LONGTEXT");
     }
@@ -60,29 +65,34 @@ public class PlayersTeamsTable extends DatabaseTable {
         return null;
     }
 
-    public List<PlayersTeam> getPlayersTeams() throws SQLSyntaxErrorException {
+    public UUID searchTeamFromMember(@NotNull UUID member) {
+        try {
+            return membersTable.getTeamId(member);
+        } catch (SQLException e) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to get players team data.", e);
+        }
+        return null;
+    }
+
+    public List<PlayersTeam> getPlayersTeams() throws SQLException {
         val playersTeams = new ArrayList<PlayersTeam>();
         try (var connection = getConnector().getConnection();
              var ps = connection.prepareStatement(
-                     "SELECT * FROM " + getTablename()
+                     "SELECT id, team_name, owner FROM " + getTablename()
              )) {
+            val members = membersTable.getAllMembers();
             try (var resultSet = ps.executeQuery()) {
                 while (resultSet.next()) {
                     val id = UUID.fromString(resultSet.getString("id"));
                     val owner = UUID.fromString(resultSet.getString("owner"));
-                    val members = resultSet.getString("members");
                     val team = new PlayersTeam(id, owner);
-                    if (!StringUtils.isEmpty(members))
-                        team.setMembers(gson.fromJson(members, new TypeToken<List<UUID>>() {
-                        }.getType()));
+                    val teamMembers = members.get(id);
+                    if (teamMembers != null)
+                        team.setMembers(teamMembers);
                     team.setTeamName(resultSet.getString("team_name"));
                     playersTeams.add(team);
                 }
             }
-        } catch (SQLSyntaxErrorException e1) {
-            throw e1;
-        } catch (SQLException e2) {
-            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to get players team data.", e2);
         }
         return playersTeams;
     }
@@ -90,17 +100,14 @@ public class PlayersTeamsTable extends DatabaseTable {
     public PlayersTeam getPlayersTeam(@NotNull UUID id) {
         try (var connection = getConnector().getConnection();
              var ps = connection.prepareStatement(
-                     "SELECT * FROM " + getTablename() + " WHERE id = ?"
+                     "SELECT team_name, owner FROM " + getTablename() + " WHERE id = ?"
              )) {
             ps.setString(1, id.toString());
             try (var resultSet = ps.executeQuery()) {
                 while (resultSet.next()) {
                     val owner = UUID.fromString(resultSet.getString("owner"));
-                    val members = resultSet.getString("members");
                     val team = new PlayersTeam(id, owner);
-                    if (!StringUtils.isEmpty(members))
-                        team.setMembers(gson.fromJson(members, new TypeToken<List<UUID>>() {
-                        }.getType()));
+                    team.setMembers(membersTable.getMembers(id));
                     team.setTeamName(resultSet.getString("team_name"));
                     return team;
                 }
@@ -111,58 +118,81 @@ public class PlayersTeamsTable extends DatabaseTable {
         return null;
     }
 
-    public void registerTeam(@NotNull PlayersTeam playersTeam) throws SQLException {
+    /**
+     * Copies the members stored as a JSON array in the members column into TeamMembersTable.
+     * Used by the migration to v5.2. Players already recorded as a member of a team are not moved,
+     * so running this again does not change the members.
+     *
+     * @throws SQLException Thrown when reading the teams fails.
+     */
+    public void copyLegacyMembers() throws SQLException {
         try (var connection = getConnector().getConnection();
              var ps = connection.prepareStatement(
-                     "INSERT INTO " + getTablename() + " (id, owner, team_name, members) VALUES (?, ?, ?, ?)"
+                     "SELECT id, members FROM " + getTablename() + " WHERE members LIKE '[%'"
              )) {
+            try (var resultSet = ps.executeQuery()) {
+                while (resultSet.next()) {
+                    val id = resultSet.getString("id");
+                    try {
+                        List<UUID> members = gson.fromJson(resultSet.getString("members"), new TypeToken<List<UUID>>() {
+                        }.getType());
+                        membersTable.addMembersIfAbsent(connection, UUID.fromString(id), members);
+                    } catch (JsonParseException | SQLException e) {
+                        SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to copy the members of the team " + id + ".", e);
+                    }
+                }
+            }
+        }
+    }
+
+    // The write methods below take the connection of the transaction they are part of.
+    // They are called through TeamWriteQueue, which commits one transaction per team event.
+
+    public void registerTeam(@NotNull Connection connection, @NotNull PlayersTeam playersTeam) throws SQLException {
+        try (var ps = connection.prepareStatement(
+                "INSERT INTO " + getTablename() + " (id, owner, team_name) VALUES (?, ?, ?)"
+        )) {
             ps.setString(1, playersTeam.getId().toString());
             ps.setString(2, playersTeam.getOwner().toString());
             ps.setString(3, playersTeam.getTeamName());
-            String membersJson = gson.toJson(playersTeam.getMembers());
-            ps.setString(4, membersJson);
             ps.execute();
         }
+        membersTable.addMembers(connection, playersTeam.getId(), playersTeam.getMembers());
     }
 
-    public void updateTeamOwner(@NotNull UUID id, @NotNull UUID owner) throws SQLException {
-        try (var connection = getConnector().getConnection();
-             var ps = connection.prepareStatement(
-                     "UPDATE " + getTablename() + " SET owner = ? WHERE id = ?"
-             )) {
+    public void updateTeamOwner(@NotNull Connection connection, @NotNull UUID id, @NotNull UUID owner) throws SQLException {
+        try (var ps = connection.prepareStatement(
+                "UPDATE " + getTablename() + " SET owner = ? WHERE id = ?"
+        )) {
             ps.setString(1, owner.toString());
             ps.setString(2, id.toString());
             ps.execute();
         }
     }
 
-    public void updateTeamName(@NotNull UUID id, @Nullable String name) throws SQLException {
-        try (var connection = getConnector().getConnection();
-             var ps = connection.prepareStatement(
-                     "UPDATE " + getTablename() + " SET team_name = ? WHERE id = ?"
-             )) {
+    public void updateTeamName(@NotNull Connection connection, @NotNull UUID id, @Nullable String name) throws SQLException {
+        try (var ps = connection.prepareStatement(
+                "UPDATE " + getTablename() + " SET team_name = ? WHERE id = ?"
+        )) {
             ps.setString(1, name);
             ps.setString(2, id.toString());
             ps.execute();
         }
     }
 
-    public void updateMembers(@NotNull UUID id, @Nullable List<UUID> members) throws SQLException {
-        try (var connection = getConnector().getConnection();
-             var ps = connection.prepareStatement(
-                     "UPDATE " + getTablename() + " SET members = ? WHERE id = ?"
-             )) {
-            ps.setString(1, gson.toJson(members));
-            ps.setString(2, id.toString());
-            ps.execute();
-        }
+    public void addMember(@NotNull Connection connection, @NotNull UUID id, @NotNull UUID member) throws SQLException {
+        membersTable.addMembers(connection, id, List.of(member));
     }
 
-    public void deleteTeam(@NotNull UUID id) throws SQLException {
-        try (var connection = getConnector().getConnection();
-             var ps = connection.prepareStatement(
-                     "DELETE FROM " + getTablename() + " WHERE id = ?"
-             )) {
+    public void removeMember(@NotNull Connection connection, @NotNull UUID id, @NotNull UUID member) throws SQLException {
+        membersTable.removeMember(connection, id, member);
+    }
+
+    public void deleteTeam(@NotNull Connection connection, @NotNull UUID id) throws SQLException {
+        membersTable.deleteMembers(connection, id);
+        try (var ps = connection.prepareStatement(
+                "DELETE FROM " + getTablename() + " WHERE id = ?"
+        )) {
             ps.setString(1, id.toString());
             ps.execute();
         }
@@ -16,14 +16,23 @@
 
 package page.nafuchoco.soloservercore.database;
 
-import lombok.val;
 import org.jetbrains.annotations.NotNull;
+import page.nafuchoco.soloservercore.SoloServerCore;
 
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
 
+/**
+ * Provides the plugin settings stored in {@link PluginSettingsTable}.
+ * All settings are loaded at once into an immutable snapshot, so the getters never access the database.
+ * The setters write to the database first and then replace the snapshot.
+ * When several servers share one database, {@link #reload()} picks up the changes made by the other servers.
+ */
 public class PluginSettingsManager {
     private static final String[] settingsKeys =
-            new String[]{"checkBlock", "protectionPeriod", "teamSpawnCollect", "stockSpawnPoint", "broadcastBedCount", "useAfkCount", "afkTimeThreshold", "reteleportResetAll", "lastMigratedVersion"};
+            new String[]{"checkBlock", "protectionPeriod", "teamSpawnCollect", "stockSpawnPoint", "broadcastBedCount", "useAfkCount", "afkTimeThreshold", "reteleportResetAll", "lastMigratedVersion", "chunkClaimsSince"};
 
     public static String[] getSettingsKeys() {
         return settingsKeys;
@@ -31,6 +40,9 @@ public class PluginSettingsManager {
 
 
     private final PluginSettingsTable settingsTable;
+    private final Object updateLock = new Object();
+    private volatile Map<String, String> rawSettings;
+    private volatile PluginSettings settings;
 
     // Default Value
     private static final boolean CHECK_BLOCK = true;
@@ -42,108 +54,214 @@ public class PluginSettingsManager {
     private static final int AFK_TIME_THRESHOLD = 30;
     private static final boolean RETELEPORT_RESET_ALL = false;
     private static final int LAST_MIGRATED_VERSION = 350;
+    private static final long CHUNK_CLAIMS_SINCE = 0;
 
     public PluginSettingsManager(PluginSettingsTable settingsTable) {
         this.settingsTable = settingsTable;
+        rawSettings = Map.of();
+        settings = PluginSettings.of(rawSettings);
+        reload();
+    }
+
+    /**
+     * Reloads all settings from the database.
+     * If loading fails, the current settings are kept.
+     */
+    public void reload() {
+        // The read is done under the lock, so a setter committing in the meantime is not overwritten by older values.
+        synchronized (updateLock) {
+            try {
+                rawSettings = Map.copyOf(settingsTable.getPluginSettings());
+                settings = PluginSettings.of(rawSettings);
+            } catch (SQLException e) {
+                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to get the plugin settings.", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the current settings snapshot.
+     * Use this when several values must be read consistently.
+     *
+     * @return Current settings snapshot
+     */
+    public PluginSettings getSettings() {
+        return settings;
     }
 
     public boolean isCheckBlock() {
-        val value = settingsTable.getPluginSetting("checkBlock");
-        if (value == null)
-            return CHECK_BLOCK;
-        else
-            return Boolean.parseBoolean(value);
+        return settings.checkBlock();
     }
 
     public int getProtectionPeriod() {
-        val value = settingsTable.getPluginSetting("protectionPeriod");
-        if (value == null)
-            return PROTECTION_PERIOD;
-        else
-            return Integer.parseInt(value);
+        return settings.protectionPeriod();
     }
 
     public boolean isTeamSpawnCollect() {
-        val value = settingsTable.getPluginSetting("teamSpawnCollect");
-        if (value == null)
-            return TEAM_SPAWN_COLLECT;
-        else
-            return Boolean.parseBoolean(value);
+        return settings.teamSpawnCollect();
+    }
+
+    public int getStockSpawnPoint() {
+        return settings.stockSpawnPoint();
     }
 
     public boolean isBroadcastBedCount() {
-        val value = settingsTable.getPluginSetting("broadcastBedCount");
-        if (value == null)
-            return BROADCAST_BED_COUNT;
-        else
-            return Boolean.parseBoolean(value);
+        return settings.broadcastBedCount();
     }
 
     public boolean isUseAfkCount() {
-        val value = settingsTable.getPluginSetting("useAfkCount");
-        if (value == null)
-            return USE_AFK_COUNT;
-        else
-            return Boolean.parseBoolean(value);
+        return settings.useAfkCount();
     }
 
     public int getAfkTimeThreshold() {
-        val value = settingsTable.getPluginSetting("afkTimeThreshold");
-        if (value == null)
-            return AFK_TIME_THRESHOLD;
-        else
-            return Integer.parseInt(value);
+        return settings.afkTimeThreshold();
     }
 
     public boolean isReteleportResetAll() {
-        val value = settingsTable.getPluginSetting("reteleportResetAll");
-        if (value == null)
-            return RETELEPORT_RESET_ALL;
-        else
-            return Boolean.parseBoolean(value);
+        return settings.reteleportResetAll();
     }
 
     public int getLastMigratedVersion() {
-        val value = settingsTable.getPluginSetting("lastMigratedVersion");
-        var result = LAST_MIGRATED_VERSION;
-        try {
-            if (value != null)
-                result = Integer.parseInt(value.replaceAll("\\.", ""));
-        } catch (NumberFormatException e) {
-            // nothing
-        }
-        return result;
+        return settings.lastMigratedVersion();
+    }
+
+    /**
+     * Returns the time since the chunk claim index has been recorded continuously.
+     *
+     * @return Time in milliseconds, or 0 if the index has not been recorded
+     */
+    public long getChunkClaimsSince() {
+        return settings.chunkClaimsSince();
     }
 
     public void setCheckBlock(@NotNull boolean checkBlock) throws SQLException {
-        settingsTable.setPluginSetting("checkBlock", String.valueOf(checkBlock));
+        setPluginSetting("checkBlock", String.valueOf(checkBlock));
     }
 
     public void setProtectionPeriod(@NotNull int protectionPeriod) throws SQLException {
-        settingsTable.setPluginSetting("protectionPeriod", String.valueOf(protectionPeriod));
+        setPluginSetting("protectionPeriod", String.valueOf(protectionPeriod));
     }
 
     public void setTeamSpawnCollect(@NotNull boolean teamSpawnCollect) throws SQLException {
-        settingsTable.setPluginSetting("teamSpawnCollect", String.valueOf(teamSpawnCollect));
+        setPluginSetting("teamSpawnCollect", String.valueOf(teamSpawnCollect));
+    }
+
+    public void setStockSpawnPoint(@NotNull int stockSpawnPoint) throws SQLException {
+        setPluginSetting("stockSpawnPoint", String.valueOf(stockSpawnPoint));
     }
 
     public void setBroadcastBedCount(@NotNull boolean broadcastBedCount) throws SQLException {
-        settingsTable.setPluginSetting("broadcastBedCount", String.valueOf(broadcastBedCount));
+        setPluginSetting("broadcastBedCount", String.valueOf(broadcastBedCount));
     }
 
     public void setUseAfkCount(@NotNull boolean useAfkCount) throws SQLException {
-        settingsTable.setPluginSetting("useAfkCount", String.valueOf(useAfkCount));
+        setPluginSetting("useAfkCount", String.valueOf(useAfkCount));
     }
 
     public void setAfkTimeThreshold(@NotNull int afkTimeThreshold) throws SQLException {
-        settingsTable.setPluginSetting("afkTimeThreshold", String.valueOf(afkTimeThreshold));
+        setPluginSetting("afkTimeThreshold", String.valueOf(afkTimeThreshold));
     }
 
     public void setReteleportResetAll(@NotNull boolean reteleportResetAll) throws SQLException {
-        settingsTable.setPluginSetting("reteleportResetAll", String.valueOf(reteleportResetAll));
+        setPluginSetting("reteleportResetAll", String.valueOf(reteleportResetAll));
     }
 
     public void setLastMigratedVersion(@NotNull String lastMigratedVersion) throws SQLException {
-        settingsTable.setPluginSetting("lastMigratedVersion", lastMigratedVersion);
+        setPluginSetting("lastMigratedVersion", lastMigratedVersion);
+    }
+
+    public void setChunkClaimsSince(long chunkClaimsSince) throws SQLException {
+        setPluginSetting("chunkClaimsSince", String.valueOf(chunkClaimsSince));
+    }
+
+    /**
+     * Returns the raw value of a setting from the snapshot, including settings registered by other plugins.
+     *
+     * @param name Name of the setting
+     * @return Raw value or null if not set
+     */
+    public String getPluginSetting(@NotNull String name) {
+        return rawSettings.get(name);
+    }
+
+    /**
+     * Saves the raw value of a setting and updates the snapshot.
+     *
+     * @param name  Name of the setting
+     * @param value Raw value
+     * @throws SQLException Thrown when saving the setting fails. The snapshot is not changed in that case.
+     */
+    public void setPluginSetting(@NotNull String name, @NotNull String value) throws SQLException {
+        synchronized (updateLock) {
+            settingsTable.setPluginSetting(name, value);
+            Map<String, String> updated = new HashMap<>(rawSettings);
+            updated.put(name, value);
+            rawSettings = Map.copyOf(updated);
+            settings = PluginSettings.of(rawSettings);
+        }
+    }
+
+    public record PluginSettings(boolean checkBlock,
+                                 int protectionPeriod,
+                                 boolean teamSpawnCollect,
+                                 int stockSpawnPoint,
+                                 boolean broadcastBedCount,
+                                 boolean useAfkCount,
+                                 int afkTimeThreshold,
+                                 boolean reteleportResetAll,
+                                 int lastMigratedVersion,
+                                 long chunkClaimsSince) {
+
+        static PluginSettings of(Map<String, String> values) {
+            return new PluginSettings(
+                    parseBoolean(values.get("checkBlock"), CHECK_BLOCK),
+                    parseInt(values.get("protectionPeriod"), PROTECTION_PERIOD),
+                    parseBoolean(values.get("teamSpawnCollect"), TEAM_SPAWN_COLLECT),
+                    parseInt(values.get("stockSpawnPoint"), STOCK_SPAWN_POINT),
+                    parseBoolean(values.get("broadcastBedCount"), BROADCAST_BED_COUNT),
+                    parseBoolean(values.get("useAfkCount"), USE_AFK_COUNT),
+                    parseInt(values.get("afkTimeThreshold"), AFK_TIME_THRESHOLD),
+                    parseBoolean(values.get("reteleportResetAll"), RETELEPORT_RESET_ALL),
+                    parseVersion(values.get("lastMigratedVersion")),
+                    parseLong(values.get("chunkClaimsSince"), CHUNK_CLAIMS_SINCE));
+        }
+
+        private static boolean parseBoolean(String value, boolean defaultValue) {
+            if (value == null)
+                return defaultValue;
+            else
+                return Boolean.parseBoolean(value);
+        }
+
+        private static int parseInt(String value, int defaultValue) {
+            if (value == null)
+                return defaultValue;
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+
+        private static long parseLong(String value, long defaultValue) {
+            if (value == null)
+                return defaultValue;
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+
+        private static int parseVersion(String value) {
+            var result = LAST_MIGRATED_VERSION;
+            try {
+                if (value != null)
+                    result = Integer.parseInt(value.replaceAll("\\.", ""));
+            } catch (NumberFormatException e) {
+                // nothing
+            }
+            return result;
+        }
     }
 }
@@ -19,6 +19,8 @@ package page.nafuchoco.soloservercore.database;
 import page.nafuchoco.soloservercore.SoloServerCore;
 
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 
 public class PluginSettingsTable extends DatabaseTable {
@@ -46,6 +48,19 @@ public class PluginSettingsTable extends DatabaseTable {
         return null;
     }
 
+    public Map<String, String> getPluginSettings() throws SQLException {
+        Map<String, String> settings = new HashMap<>();
+        try (var connection = getConnector().getConnection();
+             var ps = connection.prepareStatement(
+                     "SELECT settings_name, settings_value FROM " + getTablename())) {
+            try (var resultSet = ps.executeQuery()) {
+                while (resultSet.next())
+                    settings.put(resultSet.getString("settings_name"), resultSet.getString("settings_value"));
+            }
+        }
+        return settings;
+    }
+
     public void setPluginSetting(String name, String value) throws SQLException {
         try (var connection = getConnector().getConnection();
              var ps = connection.prepareStatement(
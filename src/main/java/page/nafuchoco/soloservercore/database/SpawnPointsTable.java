@@ -0,0 +1,107 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore.database;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import page.nafuchoco.soloservercore.SoloServerCore;
+
+import java.sql.SQLException;
+import java.util.logging.Level;
+
+public class SpawnPointsTable extends DatabaseTable {
+
+    public SpawnPointsTable(String tablename, DatabaseConnector connector) {
+        super(tablename, connector);
+    }
+
+    public void createTable() throws SQLException {
+        super.createTable("id BIGINT AUTO_INCREMENT PRIMARY KEY, world VARCHAR(64) NOT NULL, " +
+                "x INT NOT NULL, y INT NOT NULL, z INT NOT NULL, INDEX spawnpoints_world_index (world)");
+    }
+
+    public int countSpawnPoints(@NotNull String world) {
+        try (var connection = getConnector().getConnection();
+             var ps = connection.prepareStatement(
+                     "SELECT COUNT(*) FROM " + getTablename() + " WHERE world = ?"
+             )) {
+            ps.setString(1, world);
+            try (var resultSet = ps.executeQuery()) {
+                if (resultSet.next())
+                    return resultSet.getInt(1);
+            }
+        } catch (SQLException e) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to get spawn point data.", e);
+        }
+        return 0;
+    }
+
+    public void registerSpawnPoint(@NotNull Location location) throws SQLException {
+        try (var connection = getConnector().getConnection();
+             var ps = connection.prepareStatement(
+                     "INSERT INTO " + getTablename() + " (world, x, y, z) VALUES (?, ?, ?, ?)"
+             )) {
+            ps.setString(1, location.getWorld().getName());
+            ps.setInt(2, location.getBlockX());
+            ps.setInt(3, location.getBlockY());
+            ps.setInt(4, location.getBlockZ());
+            ps.execute();
+        }
+    }
+
+    /**
+     * Retrieves the oldest stocked spawn point of the specified world and removes it from the table.
+     * The select and delete are executed in a single transaction so that the same point is never handed out twice.
+     *
+     * @param world World from which to retrieve the spawn point
+     * @return Stocked spawn point or null if there is no stock
+     * @throws SQLException Thrown when retrieving the spawn point fails.
+     */
+    @Nullable
+    public Location popSpawnPoint(@NotNull World world) throws SQLException {
+        try (var connection = getConnector().getConnection()) {
+            connection.setAutoCommit(false);
+            try (var select = connection.prepareStatement(
+                    "SELECT id, x, y, z FROM " + getTablename() + " WHERE world = ? ORDER BY id LIMIT 1 FOR UPDATE");
+                 var delete = connection.prepareStatement(
+                         "DELETE FROM " + getTablename() + " WHERE id = ?")) {
+                select.setString(1, world.getName());
+                Location location = null;
+                try (var resultSet = select.executeQuery()) {
+                    if (resultSet.next()) {
+                        delete.setLong(1, resultSet.getLong("id"));
+                        location = new Location(world,
+                                resultSet.getInt("x"),
+                                resultSet.getInt("y"),
+                                resultSet.getInt("z"));
+                    }
+                }
+                if (location != null)
+                    delete.execute();
+                connection.commit();
+                return location;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
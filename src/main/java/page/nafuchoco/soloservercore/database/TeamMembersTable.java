@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore.database;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Stores the members of each team, one row per member.
+ * A player can be a member of only one team, so the player is the primary key and the team is looked up with an index.
+ * The owner of a team is kept in the teams table and is not stored here.
+ */
+public class TeamMembersTable extends DatabaseTable {
+
+    public TeamMembersTable(String tablename, DatabaseConnector connector) {
+        super(tablename, connector);
+    }
+
+    public void createTable() throws SQLException {
+        super.createTable("player_id VARCHAR(36) PRIMARY KEY, team_id VARCHAR(36) NOT NULL, " +
+                "joined_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, INDEX team_id (team_id)");
+    }
+
+    /**
+     * Returns the members of the team in the order they joined.
+     *
+     * @param teamId ID of the team
+     * @return Members of the team
+     * @throws SQLException Thrown when retrieving the members fails.
+     */
+    @NotNull
+    public List<UUID> getMembers(@NotNull UUID teamId) throws SQLException {
+        try (var connection = getConnector().getConnection();
+             var ps = connection.prepareStatement(
+                     "SELECT player_id FROM " + getTablename() + " WHERE team_id = ? ORDER BY joined_at"
+             )) {
+            ps.setString(1, teamId.toString());
+            List<UUID> members = new ArrayList<>();
+            try (var resultSet = ps.executeQuery()) {
+                while (resultSet.next())
+                    members.add(UUID.fromString(resultSet.getString("player_id")));
+            }
+            return members;
+        }
+    }
+
+    /**
+     * Returns the members of all teams in the order they joined.
+     *
+     * @return Map of the team ID and its members
+     * @throws SQLException Thrown when retrieving the members fails.
+     */
+    @NotNull
+    public Map<UUID, List<UUID>> getAllMembers() throws SQLException {
+        try (var connection = getConnector().getConnection();
+             var ps = connection.prepareStatement(
+                     "SELECT team_id, player_id FROM " + getTablename() + " ORDER BY joined_at"
+             )) {
+            Map<UUID, List<UUID>> members = new HashMap<>();
+            try (var resultSet = ps.executeQuery()) {
+                while (resultSet.next())
+                    members.computeIfAbsent(UUID.fromString(resultSet.getString("team_id")), id -> new ArrayList<>())
+                            .add(UUID.fromString(resultSet.getString("player_id")));
+            }
+            return members;
+        }
+    }
+
+    /**
+     * Returns the team the player is a member of.
+     *
+     * @param player UUID of the player
+     * @return ID of the team or null if the player is not a member of any team
+     * @throws SQLException Thrown when retrieving the team fails.
+     */
+    @Nullable
+    public UUID getTeamId(@NotNull UUID player) throws SQLException {
+        try (var connection = getConnector().getConnection();
+             var ps = connection.prepareStatement(
+                     "SELECT team_id FROM " + getTablename() + " WHERE player_id = ?"
+             )) {
+            ps.setString(1, player.toString());
+            try (var resultSet = ps.executeQuery()) {
+                if (resultSet.next())
+                    return UUID.fromString(resultSet.getString("team_id"));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Adds the players to the team in a batch. If a player is recorded as a member of another team, the record is moved.
+     *
+     * @param connection Connection of the transaction the members are written in
+     * @param teamId     ID of the team
+     * @param players    UUIDs of the players
+     * @throws SQLException Thrown when saving the members fails.
+     */
+    public void addMembers(@NotNull Connection connection, @NotNull UUID teamId, @NotNull Collection<UUID> players) throws SQLException {
+        if (players.isEmpty())
+            return;
+        try (var ps = connection.prepareStatement(
+                "INSERT INTO " + getTablename() + " (player_id, team_id) VALUES (?, ?) " +
+                        "ON DUPLICATE KEY UPDATE team_id = VALUES(team_id), joined_at = CURRENT_TIMESTAMP"
+        )) {
+            for (UUID player : players) {
+                ps.setString(1, player.toString());
+                ps.setString(2, teamId.toString());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Adds the players to the team in a batch. Players already recorded as a member of a team are not moved.
+     *
+     * @param connection Connection the members are written with
+     * @param teamId     ID of the team
+     * @param players    UUIDs of the players
+     * @throws SQLException Thrown when saving the members fails.
+     */
+    public void addMembersIfAbsent(@NotNull Connection connection, @NotNull UUID teamId, @NotNull Collection<UUID> players) throws SQLException {
+        if (players.isEmpty())
+            return;
+        try (var ps = connection.prepareStatement(
+                "INSERT IGNORE INTO " + getTablename() + " (player_id, team_id) VALUES (?, ?)"
+        )) {
+            for (UUID player : players) {
+                ps.setString(1, player.toString());
+                ps.setString(2, teamId.toString());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Removes the player from the team. Nothing is removed if the player is recorded as a member of another team.
+     *
+     * @param connection Connection of the transaction the member is deleted in
+     * @param teamId     ID of the team
+     * @param player     UUID of the player
+     * @throws SQLException Thrown when deleting the member fails.
+     */
+    public void removeMember(@NotNull Connection connection, @NotNull UUID teamId, @NotNull UUID player) throws SQLException {
+        try (var ps = connection.prepareStatement(
+                "DELETE FROM " + getTablename() + " WHERE player_id = ? AND team_id = ?"
+        )) {
+            ps.setString(1, player.toString());
+            ps.setString(2, teamId.toString());
+            ps.execute();
+        }
+    }
+
+    public void deleteMembers(@NotNull Connection connection, @NotNull UUID teamId) throws SQLException {
+        try (var ps = connection.prepareStatement(
+                "DELETE FROM " + getTablename() + " WHERE team_id = ?"
+        )) {
+            ps.setString(1, teamId.toString());
+            ps.execute();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore.database;
+
+import lombok.val;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import page.nafuchoco.soloservercore.SoloServerCore;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Writes the changes of the teams to the database off the main thread.
+ * <p>
+ * The writes of each team are run one at a time in the order they were submitted, so a later team event never
+ * overtakes an earlier one, while different teams are written in parallel. Each write runs in its own transaction.
+ * The in-memory team has already been changed when a write is submitted, so a failed write is rolled back and logged.
+ * Writes can be submitted from any thread.
+ */
+public class TeamWriteQueue {
+    private final DatabaseConnector connector;
+    // team -> writes not started yet. A team is present while a drain task is scheduled or running for it.
+    private final Map<UUID, TeamQueue> queues;
+    private final AtomicInteger pending;
+
+    public TeamWriteQueue(DatabaseConnector connector) {
+        this.connector = connector;
+        queues = new ConcurrentHashMap<>();
+        pending = new AtomicInteger();
+    }
+
+    /**
+     * Queues the write of the team and starts writing the team in the background if it is not already being written.
+     *
+     * @param teamId ID of the team the write belongs to
+     * @param write  Statements to run in one transaction
+     */
+    public void submit(@NotNull UUID teamId, @NotNull TeamWrite write) {
+        val created = new boolean[1];
+        val queue = queues.compute(teamId, (id, current) -> {
+            if (current == null) {
+                current = new TeamQueue();
+                created[0] = true;
+            }
+            current.writes.add(write);
+            return current;
+        });
+        pending.incrementAndGet();
+        if (created[0])
+            Bukkit.getScheduler().runTaskAsynchronously(SoloServerCore.getInstance(), () -> drain(teamId, queue));
+    }
+
+    /**
+     * Returns whether the team has writes that have not been committed yet.
+     *
+     * @param teamId ID of the team
+     * @return true if the database may not reflect the in-memory team yet
+     */
+    public boolean hasPendingWrites(@NotNull UUID teamId) {
+        return queues.containsKey(teamId);
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Writes all queued writes on the calling thread. Call this when the plugin is disabled.
+     */
+    public void flush() {
+        for (Map.Entry<UUID, TeamQueue> entry : queues.entrySet())
+            drain(entry.getKey(), entry.getValue());
+    }
+
+    private void drain(UUID teamId, TeamQueue queue) {
+        // Holding the queue keeps flush() from running the writes of the team alongside the background task.
+        synchronized (queue) {
+            TeamWrite write;
+            while ((write = next(teamId, queue)) != null) {
+                execute(write);
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    private TeamWrite next(UUID teamId, TeamQueue queue) {
+        val next = new TeamWrite[1];
+        // The team is removed only after its last write has finished,
+        // so a write submitted in the meantime is picked up by this drain instead of starting another one.
+        queues.computeIfPresent(teamId, (id, current) -> {
+            if (current != queue)
+                return current;
+            next[0] = current.writes.poll();
+            return next[0] != null ? current : null;
+        });
+        return next[0];
+    }
+
+    private void execute(TeamWrite write) {
+        try (Connection connection = connector.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                write.write(connection);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the team data.", e);
+        } catch (RuntimeException e) {
+            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "An unexpected error occurred while updating the team data.", e);
+        }
+    }
+
+    /**
+     * Statements of one team event, run in a single transaction.
+     */
+    @FunctionalInterface
+    public interface TeamWrite {
+
+        void write(@NotNull Connection connection) throws SQLException;
+    }
+
+    private static final class TeamQueue {
+        private final ArrayDeque<TeamWrite> writes = new ArrayDeque<>();
+    }
+}
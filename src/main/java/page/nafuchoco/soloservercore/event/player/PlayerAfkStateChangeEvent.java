@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 NAFU_at
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package page.nafuchoco.soloservercore.event.player;
+
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
+import page.nafuchoco.soloservercore.data.InGameSSCPlayer;
+
+/**
+ * プレイヤーがAFK状態になった場合、またはAFK状態から復帰した場合に呼び出されます。
+ *
+ * @since v5.2
+ */
+public class PlayerAfkStateChangeEvent extends PlayerStatusUpdateEvent {
+    private static final HandlerList handlers = new HandlerList();
+
+    private final boolean afk;
+
+    public PlayerAfkStateChangeEvent(InGameSSCPlayer player, boolean afk) {
+        super(player);
+        this.afk = afk;
+    }
+
+    /**
+     * 変更後の状態を返します。
+     *
+     * @return AFK状態になった場合 true, 復帰した場合 false
+     */
+    public boolean isAfk() {
+        return afk;
+    }
+
+    public static HandlerList getHandlerList() {
+        return handlers;
+    }
+
+    @Override
+    public @NotNull HandlerList getHandlers() {
+        return handlers;
+    }
+}
@@ -17,41 +17,36 @@
 package page.nafuchoco.soloservercore.listener;
 
 import lombok.val;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
-import page.nafuchoco.soloservercore.SoloServerApi;
-import page.nafuchoco.soloservercore.SoloServerCore;
-
-import java.util.Objects;
+import page.nafuchoco.soloservercore.ChatJournal;
+import page.nafuchoco.soloservercore.ChatRouter;
 
 public class AsyncPlayerChatEventListener implements Listener {
+    private final ChatRouter chatRouter;
+    private final ChatJournal chatJournal;
+
+    public AsyncPlayerChatEventListener(ChatRouter chatRouter, ChatJournal chatJournal) {
+        this.chatRouter = chatRouter;
+        this.chatJournal = chatJournal;
+    }
 
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onAsyncPlayerChatEvent(AsyncPlayerChatEvent event) {
-        val message = event.getPlayer().getDisplayName() + " >> " +
-                ChatColor.translateAlternateColorCodes('&', event.getMessage());
-        SoloServerCore.getInstance().getLogger().info(message);
-
-        Bukkit.getOnlinePlayers().stream()
-                .filter(p -> p.hasPermission("soloservercore.chat.bypass"))
-                .forEach(p -> p.sendMessage(ChatColor.GRAY + "[Chat] " + message));
-
-        val joinedTeam = SoloServerApi.getInstance().getPlayersTeam(event.getPlayer());
-        if (joinedTeam != null) {
+        val coloredMessage = ChatColor.translateAlternateColorCodes('&', event.getMessage());
+        val message = event.getPlayer().getDisplayName() + " >> " + coloredMessage;
+        chatJournal.record(event.getPlayer().getUniqueId(), event.getPlayer().getName(), ChatColor.stripColor(coloredMessage));
 
-            val owner = Bukkit.getPlayer(joinedTeam.getOwner());
-            if (owner != null)
-                owner.sendMessage(message);
+        val bypassMessage = ChatColor.GRAY + "[Chat] " + message;
+        for (Player player : chatRouter.getBypassPlayers())
+            player.sendMessage(bypassMessage);
 
-            joinedTeam.getMembers().stream()
-                    .map(Bukkit::getPlayer)
-                    .filter(Objects::nonNull)
-                    .forEach(p -> p.sendMessage(message));
-        }
+        for (Player player : chatRouter.getTeamRecipients(event.getPlayer().getUniqueId()))
+            player.sendMessage(message);
         event.setCancelled(true);
     }
 }
@@ -17,33 +17,36 @@
 package page.nafuchoco.soloservercore.listener;
 
 import lombok.val;
-import org.bukkit.Bukkit;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.block.BlockDamageEvent;
-import org.bukkit.event.block.BlockPlaceEvent;
-import page.nafuchoco.soloservercore.CoreProtectClient;
+import org.bukkit.event.block.*;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+import page.nafuchoco.soloservercore.BlockOwnerCache;
+import page.nafuchoco.soloservercore.ChunkClaimIndex;
 import page.nafuchoco.soloservercore.SoloServerApi;
 import page.nafuchoco.soloservercore.SoloServerCore;
+import page.nafuchoco.soloservercore.TeamMemberIndex;
 import page.nafuchoco.soloservercore.data.TempSSCPlayer;
-import page.nafuchoco.soloservercore.database.PluginSettingsManager;
-
-import java.util.ArrayList;
 
 /**
  * Cancel changes to the block if a record of changes is found that meets the condition.<br>
  * Bypass if user has the permission <code>soloservercore.protect.bypass</code>.
  */
 public class BlockEventListener implements Listener {
-    private final CoreProtectClient coreProtect;
-    private final PluginSettingsManager settingsManager;
+    private final BlockOwnerCache blockOwnerCache;
+    private final TeamMemberIndex teamMemberIndex;
+    private final ChunkClaimIndex chunkClaimIndex;
 
-    public BlockEventListener(CoreProtectClient coreProtect, PluginSettingsManager settingsManager) {
-        this.coreProtect = coreProtect;
-        this.settingsManager = settingsManager;
+    public BlockEventListener(BlockOwnerCache blockOwnerCache, TeamMemberIndex teamMemberIndex, ChunkClaimIndex chunkClaimIndex) {
+        this.blockOwnerCache = blockOwnerCache;
+        this.teamMemberIndex = teamMemberIndex;
+        this.chunkClaimIndex = chunkClaimIndex;
     }
 
     @EventHandler(priority = EventPriority.LOW)
@@ -66,25 +69,72 @@ public class BlockEventListener implements Listener {
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlaceMonitor(BlockPlaceEvent event) {
+        // Every part of a bed or a door is recorded, so that no part keeps an earlier "no owner" entry.
+        if (event instanceof BlockMultiPlaceEvent multiPlaceEvent) {
+            multiPlaceEvent.getReplacedBlockStates().forEach(state -> {
+                blockOwnerCache.recordPlaced(state.getBlock(), event.getPlayer().getName());
+                chunkClaimIndex.recordPlaced(state.getBlock(), event.getPlayer().getUniqueId());
+            });
+        } else {
+            blockOwnerCache.recordPlaced(event.getBlock(), event.getPlayer().getName());
+            chunkClaimIndex.recordPlaced(event.getBlock(), event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreakMonitor(BlockBreakEvent event) {
+        blockOwnerCache.recordRemoved(event.getBlock());
+    }
+
+    // The following placements are also logged by CoreProtect under the name of the player.
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerBucketEmptyMonitor(PlayerBucketEmptyEvent event) {
+        chunkClaimIndex.recordPlaced(event.getBlock(), event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStructureGrowMonitor(StructureGrowEvent event) {
+        if (event.getPlayer() != null)
+            for (BlockState state : event.getBlocks())
+                chunkClaimIndex.recordPlaced(state.getBlock(), event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFertilizeMonitor(BlockFertilizeEvent event) {
+        if (event.getPlayer() != null)
+            for (BlockState state : event.getBlocks())
+                chunkClaimIndex.recordPlaced(state.getBlock(), event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityBlockFormMonitor(EntityBlockFormEvent event) {
+        if (event.getEntity() instanceof Player player)
+            chunkClaimIndex.recordPlaced(event.getBlock(), player.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        chunkClaimIndex.chunkUnloaded(event.getChunk());
+    }
+
     private boolean checkEditRights(Block block, Player player) {
         // Permission Check
-        if (block.getWorld().equals(SoloServerApi.getInstance().getSSCPlayer(player).getSpawnLocationObject().getWorld())) {
+        if (SoloServerApi.getInstance().getSSCPlayer(player).getSpawnBlockLocation().isInWorld(block.getWorld())) {
             if (!player.hasPermission("soloservercore.protect.bypass")) {
-                String actionPlayer = coreProtect.getAction(block, settingsManager.getProtectionPeriod());
+                val joinedTeam = SoloServerApi.getInstance().getSSCPlayer(player).getJoinedTeam();
+                // Chunk Claim Check
+                if (chunkClaimIndex.isClaimedOnlyBy(block, player, joinedTeam))
+                    return true;
+
+                String actionPlayer = blockOwnerCache.getOwner(block);
                 // Action Player Check
                 if (actionPlayer != null && !actionPlayer.startsWith("#") && !player.getName().equals(actionPlayer)) {
-                    val sscPlayer = SoloServerApi.getInstance().getSSCPlayer(player);
-                    if (sscPlayer.getJoinedTeam() != null) {
-                        val joinedTeam = sscPlayer.getJoinedTeam();
-                        val members = new ArrayList<>(joinedTeam.getMembers());
-                        members.add(joinedTeam.getOwner());
-                        // Action Team Member Check
-                        for (val uuid : members) {
-                            val member = Bukkit.getOfflinePlayer(uuid).getName();
-                            if (member.equals(actionPlayer))
-                                return true;
-                        }
-                    }
+                    // Action Team Member Check
+                    if (joinedTeam != null && teamMemberIndex.isTeamMember(joinedTeam, actionPlayer))
+                        return true;
                 } else {
                     return true;
                 }
@@ -19,99 +19,111 @@ package page.nafuchoco.soloservercore.listener;
 import lombok.val;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerBedEnterEvent;
 import org.bukkit.event.player.PlayerBedLeaveEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import page.nafuchoco.soloservercore.AfkManager;
+import page.nafuchoco.soloservercore.CooldownService;
 import page.nafuchoco.soloservercore.MessageManager;
+import page.nafuchoco.soloservercore.SleepTracker;
 import page.nafuchoco.soloservercore.SoloServerApi;
 import page.nafuchoco.soloservercore.SoloServerCore;
-import page.nafuchoco.soloservercore.data.TempSSCPlayer;
 import page.nafuchoco.soloservercore.database.PluginSettingsManager;
+import page.nafuchoco.soloservercore.event.player.PlayerAfkStateChangeEvent;
 
-import java.util.Calendar;
-import java.util.Date;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class PlayerBedEventListener implements Listener {
-    private final Map<Player, Date> cooldownMap;
+    private static final long BED_COOLDOWN = 5; // seconds
+
+    private final CooldownService.Cooldown<Void> bedCooldown;
     private final PluginSettingsManager settingsManager;
+    private final AfkManager afkManager;
+    private final SleepTracker sleepTracker;
 
-    public PlayerBedEventListener(PluginSettingsManager settingsManager) {
+    public PlayerBedEventListener(PluginSettingsManager settingsManager,
+                                  AfkManager afkManager,
+                                  SleepTracker sleepTracker,
+                                  CooldownService cooldownService) {
         this.settingsManager = settingsManager;
-        cooldownMap = new LinkedHashMap<>();
+        this.afkManager = afkManager;
+        this.sleepTracker = sleepTracker;
+        bedCooldown = cooldownService.newCooldown();
     }
 
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerBedEnterEvent(PlayerBedEnterEvent event) {
-        if (!event.isCancelled() && !checkCooldown(event.getPlayer())) {
+        val world = event.getBed().getWorld();
+        if (event.getBedEnterResult().equals(PlayerBedEnterEvent.BedEnterResult.OK)) {
+            sleepTracker.bedEntered(event.getPlayer());
+            sleepTracker.resetBroadcastCount(world);
+        }
+
+        if (!checkCooldown(event.getPlayer())) {
             if (settingsManager.isBroadcastBedCount()
                     && event.getBedEnterResult().equals(PlayerBedEnterEvent.BedEnterResult.OK)) {
-                val count = event.getBed().getWorld().getPlayers().stream()
-                        .filter(player -> !isAfk(player))
-                        .filter(player -> !player.isSleeping())
-                        .filter(player -> !player.equals(event.getPlayer()))
-                        .peek(player -> player.sendMessage(SoloServerCore.getMessage(player, "system.sleeping.waiting.you")))
-                        .count();
-                if (count > 0) {
+                if (sleepTracker.getAwakeCount(world, settingsManager.isUseAfkCount()) > 0) {
+                    world.getPlayers().stream()
+                            .filter(player -> !player.equals(event.getPlayer()))
+                            .filter(player -> !sleepTracker.isSleeping(player.getUniqueId()))
+                            .filter(player -> !isAfk(player))
+                            .forEach(player -> player.sendMessage(SoloServerCore.getMessage(player, "system.sleeping.waiting.you")));
                     event.getPlayer().sendMessage(SoloServerCore.getMessage(event.getPlayer(), "system.sleeping.waiting"));
-                } else if (settingsManager.isUseAfkCount()
-                        && event.getBed().getWorld().getPlayers().stream().anyMatch(this::isAfk)) {
-                    event.getPlayer().getWorld().setTime(0);
+                } else if (settingsManager.isUseAfkCount() && afkManager.getAfkCount(world) > 0) {
+                    world.setTime(0);
                 }
             }
 
-            val calendar = Calendar.getInstance();
-            calendar.add(Calendar.SECOND, 5);
-            cooldownMap.put(event.getPlayer(), calendar.getTime());
+            bedCooldown.start(event.getPlayer().getUniqueId(), BED_COOLDOWN, TimeUnit.SECONDS);
         }
     }
 
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerBedLeaveEvent(PlayerBedLeaveEvent event) {
+        sleepTracker.bedLeft(event.getPlayer());
+
+        val world = event.getBed().getWorld();
         if (!checkCooldown(event.getPlayer())
                 && settingsManager.isBroadcastBedCount()
-                && (event.getPlayer().getWorld().getTime() >= 12542 || event.getPlayer().getWorld().hasStorm())) {
-            val count = event.getBed().getWorld().getPlayers().stream()
-                    .filter(player -> !player.isSleeping())
-                    .filter(player -> !player.equals(event.getPlayer()))
-                    .count();
-            event.getBed().getWorld().getPlayers().forEach(
-                    player -> player.sendMessage(MessageManager.format(SoloServerCore.getMessage(player, "system.sleeping.count"), count)));
+                && (world.getTime() >= 12542 || world.hasStorm())) {
+            // ベッドから出たプレイヤー自身は数えない
+            val count = sleepTracker.getAwakeCount(world, false)
+                    - (afkManager.isCounted(event.getPlayer().getUniqueId()) ? 1 : 0);
+            if (sleepTracker.updateBroadcastCount(world, count))
+                world.getPlayers().forEach(
+                        player -> player.sendMessage(MessageManager.format(SoloServerCore.getMessage(player, "system.sleeping.count"), count)));
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerAfkStateChangeEvent(PlayerAfkStateChangeEvent event) {
+        sleepTracker.afkChanged(event.getPlayer().getId(), event.isAfk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorldEvent(PlayerChangedWorldEvent event) {
+        sleepTracker.bedLeft(event.getPlayer());
+    }
 
     // Clear cache.
     @EventHandler
     public void onPlayerQuitEvent(PlayerQuitEvent event) {
-        cooldownMap.remove(event.getPlayer());
+        bedCooldown.remove(event.getPlayer().getUniqueId());
+        sleepTracker.bedLeft(event.getPlayer());
     }
 
     private boolean checkCooldown(Player player) {
-        val date = cooldownMap.get(player);
-        if (date != null) {
-            val cooldown = date.after(new Date());
-            if (!cooldown)
-                cooldownMap.remove(player);
-            return cooldown;
-        }
-        return false;
+        return bedCooldown.isActive(player.getUniqueId());
     }
 
     private boolean isAfk(Player player) {
         if (settingsManager.isUseAfkCount()) {
-            val playerData = SoloServerApi.getInstance().getSSCPlayer(player);
-            if (playerData instanceof TempSSCPlayer)
-                return true;
-
-            val calendar = Calendar.getInstance();
-            calendar.setTime(new Date(playerData.getLatestMoveTime()));
-
-            calendar.add(Calendar.MINUTE, settingsManager.getAfkTimeThreshold());
-
-            return new Date().after(calendar.getTime());
+            // ログイン処理が完了していないプレイヤーは AFK として扱う
+            return afkManager.isAfk(player.getUniqueId())
+                    || !SoloServerApi.getInstance().getPlayerActivityTracker().isTracked(player.getUniqueId());
         } else {
             return false;
         }
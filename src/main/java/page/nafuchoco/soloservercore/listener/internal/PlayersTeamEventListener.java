@@ -16,83 +16,107 @@
 
 package page.nafuchoco.soloservercore.listener.internal;
 
+import lombok.val;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import page.nafuchoco.soloservercore.ChatRouter;
+import page.nafuchoco.soloservercore.CooldownService;
 import page.nafuchoco.soloservercore.MessageManager;
+import page.nafuchoco.soloservercore.PlayerVisibilityManager;
 import page.nafuchoco.soloservercore.SoloServerApi;
 import page.nafuchoco.soloservercore.SoloServerCore;
+import page.nafuchoco.soloservercore.TeamMemberIndex;
+import page.nafuchoco.soloservercore.TeamRegistry;
 import page.nafuchoco.soloservercore.data.PlayersTeam;
 import page.nafuchoco.soloservercore.database.MessagesTable;
-import page.nafuchoco.soloservercore.database.PlayersTable;
+import page.nafuchoco.soloservercore.database.PlayersTableWriteBuffer;
 import page.nafuchoco.soloservercore.database.PlayersTeamsTable;
 import page.nafuchoco.soloservercore.database.PluginSettingsManager;
+import page.nafuchoco.soloservercore.database.TeamWriteQueue;
 import page.nafuchoco.soloservercore.event.team.*;
 
-import java.sql.SQLException;
 import java.util.Objects;
-import java.util.logging.Level;
+import java.util.UUID;
 
 public class PlayersTeamEventListener implements Listener {
-    private final PlayersTable playersTable;
+    private final PlayersTableWriteBuffer playersTableWriteBuffer;
     private final PlayersTeamsTable teamsTable;
+    private final TeamWriteQueue teamWriteQueue;
     private final PluginSettingsManager settingsManager;
     private final MessagesTable messagesTable;
+    private final PlayerVisibilityManager visibilityManager;
+    private final TeamRegistry teamRegistry;
+    private final TeamMemberIndex teamMemberIndex;
+    private final ChatRouter chatRouter;
+    private final CooldownService.Cooldown<UUID> teamInvitations;
 
     public PlayersTeamEventListener(
-            PlayersTable playersTable,
+            PlayersTableWriteBuffer playersTableWriteBuffer,
             PlayersTeamsTable teamsTable,
+            TeamWriteQueue teamWriteQueue,
             PluginSettingsManager settingsManager,
-            MessagesTable messagesTable) {
-        this.playersTable = playersTable;
+            MessagesTable messagesTable,
+            PlayerVisibilityManager visibilityManager,
+            TeamRegistry teamRegistry,
+            TeamMemberIndex teamMemberIndex,
+            ChatRouter chatRouter,
+            CooldownService.Cooldown<UUID> teamInvitations) {
+        this.playersTableWriteBuffer = playersTableWriteBuffer;
         this.teamsTable = teamsTable;
+        this.teamWriteQueue = teamWriteQueue;
         this.settingsManager = settingsManager;
         this.messagesTable = messagesTable;
+        this.visibilityManager = visibilityManager;
+        this.teamRegistry = teamRegistry;
+        this.teamMemberIndex = teamMemberIndex;
+        this.chatRouter = chatRouter;
+        this.teamInvitations = teamInvitations;
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayersTeamCreateEvent(PlayersTeamCreateEvent event) {
         if (!event.isCancelled()) {
-            try {
-                teamsTable.registerTeam(event.getPlayersTeam());
-                playersTable.updateJoinedTeam(event.getPlayer().getId(), event.getPlayersTeam().getId());
-                event.getPlayer().setJoinedTeam(event.getPlayersTeam());
-            } catch (SQLException e) {
-                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to save the team data.", e);
-                event.setCancelled(true);
-            }
+            val team = event.getPlayersTeam();
+            // チームは書き込みが実行されるまでに変更される可能性があるため、メインスレッドで複製したものを書き込む
+            val snapshot = new PlayersTeam(team.getId(), team.getOwner());
+            snapshot.setTeamName(team.getTeamName());
+            snapshot.setMembers(team.getMembers());
+            teamWriteQueue.submit(team.getId(), connection -> teamsTable.registerTeam(connection, snapshot));
+            playersTableWriteBuffer.updateJoinedTeam(event.getPlayer().getId(), team.getId());
+            event.getPlayer().setJoinedTeam(team);
+            teamRegistry.teamCreated(team);
+            chatRouter.teamJoined(event.getBukkitPlayer(), event.getPlayersTeam());
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayersTeamJoinEvent(PlayersTeamJoinEvent event) {
         if (!event.isCancelled()) {
-            try {
-                playersTable.updateJoinedTeam(event.getPlayer().getId(), event.getPlayersTeam().getId());
-                teamsTable.updateMembers(event.getPlayersTeam().getId(), event.getPlayersTeam().getMembers());
-                event.getPlayer().setJoinedTeam(event.getPlayersTeam());
-            } catch (SQLException e) {
-                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the team data.", e);
-                event.setCancelled(true);
+            val teamId = event.getPlayersTeam().getId();
+            val playerId = event.getPlayer().getId();
+            // 解散済みのチームへの参加は反映しない
+            if (!teamRegistry.memberJoined(event.getPlayersTeam(), playerId)) {
+                event.getPlayersTeam().removeMember(playerId);
                 return;
             }
+            teamWriteQueue.submit(teamId, connection -> teamsTable.addMember(connection, teamId, playerId));
+            playersTableWriteBuffer.updateJoinedTeam(playerId, teamId);
+            event.getPlayer().setJoinedTeam(event.getPlayersTeam());
+            teamMemberIndex.memberJoined(event.getPlayersTeam(), event.getPlayer().getId());
+            chatRouter.teamJoined(event.getBukkitPlayer(), event.getPlayersTeam());
 
             var owner = Bukkit.getPlayer(event.getPlayersTeam().getOwner());
-            if (owner != null) {
+            if (owner != null)
                 owner.sendMessage(MessageManager.format(SoloServerCore.getMessage(owner, "teams.join.announce.owner"), event.getBukkitPlayer().getDisplayName()));
-                event.getBukkitPlayer().showPlayer(SoloServerCore.getInstance(), owner);
-                owner.showPlayer(SoloServerCore.getInstance(), event.getBukkitPlayer());
-            }
             event.getPlayersTeam().getMembers().forEach(uuid -> {
                 var player = Bukkit.getPlayer(uuid);
-                if (player != null) {
+                if (player != null)
                     player.sendMessage(MessageManager.format(SoloServerCore.getMessage(player, "teams.join.announce"), event.getBukkitPlayer().getDisplayName()));
-                    event.getBukkitPlayer().showPlayer(SoloServerCore.getInstance(), player);
-                    player.showPlayer(SoloServerCore.getInstance(), event.getBukkitPlayer());
-                }
             });
+            visibilityManager.updatePlayer(event.getBukkitPlayer());
 
             if (settingsManager.isTeamSpawnCollect())
                 event.getBukkitPlayer().teleport(SoloServerApi.getInstance().getSpawn(event.getPlayersTeam().getOwner()));
@@ -102,110 +126,124 @@ public class PlayersTeamEventListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayersTeamLeaveEvent(PlayersTeamLeaveEvent event) {
         if (!event.isCancelled()) {
-            try {
-                playersTable.updateJoinedTeam(event.getPlayer().getId(), null);
-                teamsTable.updateMembers(event.getPlayersTeam().getId(), event.getPlayersTeam().getMembers());
-                event.getPlayer().setJoinedTeam(event.getPlayersTeam());
-            } catch (SQLException e) {
-                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the team data.", e);
-                event.setCancelled(true);
-                return;
-            }
+            val playerId = event.getPlayer().getId();
+            removeMember(event.getPlayersTeam(), playerId);
+            playersTableWriteBuffer.updateJoinedTeam(playerId, null);
+            event.getPlayer().setJoinedTeam(null);
+            chatRouter.teamLeft(event.getBukkitPlayer());
 
             var owner = Bukkit.getPlayer(event.getPlayersTeam().getOwner());
-            if (owner != null) {
+            if (owner != null)
                 owner.sendMessage(MessageManager.format(SoloServerCore.getMessage(owner, "teams.leave.announce.owner"), event.getBukkitPlayer().getDisplayName()));
-                event.getBukkitPlayer().hidePlayer(SoloServerCore.getInstance(), owner);
-                owner.hidePlayer(SoloServerCore.getInstance(), event.getBukkitPlayer());
-            }
             event.getPlayersTeam().getMembers().forEach(uuid -> {
                 var player = Bukkit.getPlayer(uuid);
-                if (player != null) {
+                if (player != null)
                     player.sendMessage(MessageManager.format(SoloServerCore.getMessage(player, "teams.leave.announce"), event.getBukkitPlayer().getDisplayName()));
-                    event.getBukkitPlayer().hidePlayer(SoloServerCore.getInstance(), player);
-                    player.hidePlayer(SoloServerCore.getInstance(), event.getBukkitPlayer());
-                }
             });
+            visibilityManager.updatePlayer(event.getBukkitPlayer());
         }
     }
 
+    /**
+     * Removes the member from the team, updating the team registry and the team member index.
+     * The team data of the player, the chat recipients and the visibility are not changed, so the caller must update them.
+     *
+     * @param team   Team the member leaves
+     * @param player UUID of the member
+     */
+    public void removeMember(PlayersTeam team, UUID player) {
+        val teamId = team.getId();
+        teamWriteQueue.submit(teamId, connection -> teamsTable.removeMember(connection, teamId, player));
+        teamRegistry.memberLeft(team, player);
+        teamMemberIndex.memberLeft(team, player);
+    }
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayersTeamMessageCreate(PlayersTeamMessageCreateEvent event) {
         if (!event.isCancelled()) {
-            try {
-                messagesTable.registerMessage(event.getCreateTeamMessage());
-            } catch (SQLException e) {
-                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the team data.", e);
-                event.setCancelled(true);
-            }
+            val message = event.getCreateTeamMessage();
+            teamWriteQueue.submit(event.getPlayersTeam().getId(), connection -> messagesTable.registerMessage(connection, message));
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayersTeamMessageDelete(PlayersTeamMessageDeleteEvent event) {
         if (!event.isCancelled()) {
-            try {
-                messagesTable.deleteMessage(event.getDeleteMessage().getId());
-            } catch (SQLException e) {
-                SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the team data.", e);
-                event.setCancelled(true);
-            }
+            val messageId = event.getDeleteMessage().getId();
+            teamWriteQueue.submit(event.getPlayersTeam().getId(), connection -> messagesTable.deleteMessage(connection, messageId));
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayersTeamDisappearanceEvent(PlayersTeamDisappearanceEvent event) {
-        try {
-            playersTable.updateJoinedTeam(event.getPlayer().getId(), null);
-            event.getPlayersTeam().getMembers().forEach(uuid -> {
-                try {
-                    playersTable.updateJoinedTeam(uuid, null);
-                    event.getPlayer().setJoinedTeam(null);
-                    var player = Bukkit.getPlayer(uuid);
-                    if (player != null) {
-                        player.sendMessage(ChatColor.RED + "[Teams] オーナーがチームから脱退したためチームが解散されました。");
-                        event.getBukkitPlayer().hidePlayer(SoloServerCore.getInstance(), player);
-                        player.hidePlayer(SoloServerCore.getInstance(), event.getBukkitPlayer());
-                        event.getPlayersTeam().getMembers().forEach(member -> {
-                            if (!member.equals(uuid)) {
-                                var memberPlayer = Bukkit.getPlayer(member);
-                                if (memberPlayer != null) {
-                                    player.hidePlayer(SoloServerCore.getInstance(), memberPlayer);
-                                    memberPlayer.hidePlayer(SoloServerCore.getInstance(), player);
-                                }
-                            }
-                        });
-                    }
-                } catch (SQLException e) {
-                    SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the team data.", e);
-                }
-            });
-            teamsTable.deleteTeam(event.getPlayersTeam().getId());
-            messagesTable.deleteAllMessages(event.getPlayersTeam().getId());
-        } catch (SQLException e) {
-            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the team data.", e);
-        }
+        playersTableWriteBuffer.updateJoinedTeam(event.getPlayer().getId(), null);
+        event.getPlayer().setJoinedTeam(null);
+        disbandTeam(event.getPlayersTeam());
+        visibilityManager.updatePlayer(event.getBukkitPlayer());
+    }
+
+    /**
+     * Deletes the team and removes every member from it, updating the chat recipients and the visibility of the members.
+     * The pending invitations to the team are cancelled.
+     * The team data of the owner is not changed, so the caller must update it.
+     *
+     * @param team Team to delete
+     */
+    public void disbandTeam(PlayersTeam team) {
+        val teamId = team.getId();
+        // チームとメンバー、チームメッセージの削除は1つのトランザクションで行う
+        teamWriteQueue.submit(teamId, connection -> {
+            teamsTable.deleteTeam(connection, teamId);
+            messagesTable.deleteAllMessages(connection, teamId);
+        });
+        teamRegistry.teamDisappeared(team);
+        teamMemberIndex.invalidateTeam(teamId);
+        chatRouter.teamDisappeared(teamId);
+        teamInvitations.removeIf(teamId::equals);
+        team.getMembers().forEach(uuid -> {
+            // メンバーの所属チームはプレイヤーデータの書き込みバッファでまとめて更新される
+            playersTableWriteBuffer.updateJoinedTeam(uuid, null);
+            val memberSSCPlayer = SoloServerApi.getInstance().getSSCPlayer(uuid);
+            if (memberSSCPlayer != null)
+                memberSSCPlayer.setJoinedTeam(null);
+            var player = Bukkit.getPlayer(uuid);
+            if (player != null)
+                player.sendMessage(ChatColor.RED + "[Teams] オーナーがチームから脱退したためチームが解散されました。");
+        });
+        // 全員のチーム情報を更新してから表示状態を計算する
+        team.getMembers().stream()
+                .map(Bukkit::getPlayer)
+                .filter(Objects::nonNull)
+                .forEach(visibilityManager::updatePlayer);
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayersTeamStatusUpdateEvent(PlayersTeamStatusUpdateEvent event) {
-        try {
-            switch (event.getState()) {
-                case NAME ->
-                        teamsTable.updateTeamName(event.getPlayersTeam().getId(), event.getPlayersTeam().getTeamName());
-                case OWNER -> {
-                    var ownerPlayer = Bukkit.getPlayer(((PlayersTeam) event.getAfter()).getOwner());
-                    teamsTable.updateTeamOwner(event.getPlayersTeam().getId(), ownerPlayer.getUniqueId());
-                    ownerPlayer.sendMessage(MessageManager.format(SoloServerCore.getMessage(ownerPlayer, "teams.transfer.announce"), ownerPlayer.getDisplayName()));
-                    event.getPlayersTeam().getMembers().stream()
-                            .map(Bukkit::getPlayer)
-                            .filter(Objects::nonNull)
-                            .forEach(member ->
-                                    member.sendMessage(MessageManager.format(SoloServerCore.getMessage(member, "teams.transfer.announce"), ownerPlayer.getDisplayName())));
-                }
+        val teamId = event.getPlayersTeam().getId();
+        switch (event.getState()) {
+            case NAME -> {
+                val teamName = event.getPlayersTeam().getTeamName();
+                teamWriteQueue.submit(teamId, connection -> teamsTable.updateTeamName(connection, teamId, teamName));
+            }
+            case OWNER -> {
+                var ownerPlayer = Bukkit.getPlayer(((PlayersTeam) event.getAfter()).getOwner());
+                val newOwner = ownerPlayer.getUniqueId();
+                val previousOwner = event.getPlayersTeam().getOwner();
+                // 新しいオーナーはメンバーから外れ、以前のオーナーはメンバーとして残る
+                teamWriteQueue.submit(teamId, connection -> {
+                    teamsTable.updateTeamOwner(connection, teamId, newOwner);
+                    teamsTable.removeMember(connection, teamId, newOwner);
+                    teamsTable.addMember(connection, teamId, previousOwner);
+                });
+                teamRegistry.ownerChanged(event.getPlayersTeam(), newOwner);
+                teamMemberIndex.invalidateTeam(teamId);
+                ownerPlayer.sendMessage(MessageManager.format(SoloServerCore.getMessage(ownerPlayer, "teams.transfer.announce"), ownerPlayer.getDisplayName()));
+                event.getPlayersTeam().getMembers().stream()
+                        .map(Bukkit::getPlayer)
+                        .filter(Objects::nonNull)
+                        .forEach(member ->
+                                member.sendMessage(MessageManager.format(SoloServerCore.getMessage(member, "teams.transfer.announce"), ownerPlayer.getDisplayName())));
             }
-        } catch (SQLException e) {
-            SoloServerCore.getInstance().getLogger().log(Level.WARNING, "Failed to update the team data.", e);
         }
     }
 }